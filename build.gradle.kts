@@ -26,6 +26,14 @@ dependencies {
 //    implementation(libs.annotations)
 }
 
+// Benchmarks for the analysis paths, run with `./gradlew benchmark` - see src/benchmark/resources/benchmark-thresholds.properties
+val benchmark: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.test.get().output
+}
+configurations[benchmark.implementationConfigurationName].extendsFrom(configurations.testImplementation.get())
+configurations[benchmark.runtimeOnlyConfigurationName].extendsFrom(configurations.testRuntimeOnly.get())
+
 // Set the JVM language level used to build the project. Use Java 11 for 2020.3+, and Java 17 for 2022.2+.
 kotlin {
     jvmToolchain(11)
@@ -101,6 +109,21 @@ tasks {
         enabled = false
     }
 
+    // Fails when a benchmark falls below its threshold by more than benchmarkRegressionTolerance; run explicitly, not part of `check`
+    register<Test>("benchmark") {
+        val resultsFile = layout.buildDirectory.file("benchmark/results.properties")
+        description = "Runs the analysis benchmarks on generated Java sources."
+        group = LifecycleBasePlugin.VERIFICATION_GROUP
+        testClassesDirs = benchmark.output.classesDirs
+        classpath = benchmark.runtimeClasspath
+        systemProperty("benchmark.tolerance", properties("benchmarkRegressionTolerance").get())
+        systemProperty("benchmark.resultsFile", resultsFile.get().asFile.path)
+        outputs.upToDateWhen { false }
+        doFirst { resultsFile.get().asFile.delete() }
+        testLogging.showStandardStreams = true
+        shouldRunAfter(test)
+    }
+
     // Configure UI tests plugin
     // Read more: https://github.com/JetBrains/intellij-ui-test-robot
     runIdeForUiTests {
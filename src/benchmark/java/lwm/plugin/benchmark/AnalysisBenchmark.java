@@ -0,0 +1,134 @@
+package lwm.plugin.benchmark;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import lwm.plugin.core.FieldInitializationAnalysis;
+import lwm.plugin.core.FinalModifierSupport;
+import lwm.plugin.fixtures.NaiveFieldInitialization;
+import lwm.plugin.fixtures.SyntheticJavaGenerator;
+import lwm.plugin.intention.AddFinalIntention;
+
+/**
+ * 意图各个分析路径在不同规模输入上的基准测试，通过 {@code ./gradlew benchmark} 运行
+ */
+public class AnalysisBenchmark extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final int[] FIELD_COUNTS = {50, 200, 800};
+    private static final int CONSTRUCTOR_COUNT = 4;
+    private static final int[] METHOD_STATEMENTS = {500, 2000, 5000};
+    private static final int[] LAMBDA_DEPTHS = {10, 50};
+    private static final int[] CONSTRUCTOR_STATEMENTS = {1000, 5000};
+
+    /**
+     * cold：每次调用前重新加载文本，缓存的候选摘要失效；warm：同一份 PSI 上重复调用，命中缓存
+     */
+    public void testIsAvailable() {
+        final AddFinalIntention intention = new AddFinalIntention();
+        for (final int statements : METHOD_STATEMENTS) {
+            final String text = SyntheticJavaGenerator.longMethod("Big", statements);
+            configure(text);
+            BenchmarkHarness.measure("isAvailable.cold.method" + statements,
+                                     () -> moveCaretIntoBody(reset(text)),
+                                     () -> intention.isAvailable(getProject(), myFixture.getEditor(), myFixture.getFile()));
+            moveCaretIntoBody(reset(text));
+            BenchmarkHarness.measure("isAvailable.warm.method" + statements, () -> {
+            }, () -> intention.isAvailable(getProject(), myFixture.getEditor(), myFixture.getFile()));
+        }
+    }
+
+    public void testProcessMethod() {
+        for (final int statements : METHOD_STATEMENTS) {
+            final String text = SyntheticJavaGenerator.longMethod("Big", statements);
+            configure(text);
+            final PsiMethod[] method = new PsiMethod[1];
+            BenchmarkHarness.measure("processMethod.statements" + statements,
+                                     () -> method[0] = reset(text).getMethods()[0],
+                                     () -> WriteCommandAction.runWriteCommandAction(getProject(), () -> FinalModifierSupport.processMethod(method[0])));
+        }
+    }
+
+    public void testProcessClass() {
+        for (final int fields : FIELD_COUNTS) {
+            final String text = SyntheticJavaGenerator.manyFields("Dto", fields, CONSTRUCTOR_COUNT);
+            configure(text);
+            final PsiClass[] psiClass = new PsiClass[1];
+            BenchmarkHarness.measure("processClass.fields" + fields,
+                                     () -> psiClass[0] = reset(text),
+                                     () -> WriteCommandAction.runWriteCommandAction(getProject(), () -> FinalModifierSupport.processClass(psiClass[0])));
+        }
+        for (final int depth : LAMBDA_DEPTHS) {
+            final String text = SyntheticJavaGenerator.deepLambdas("Nested", depth);
+            configure(text);
+            final PsiClass[] psiClass = new PsiClass[1];
+            BenchmarkHarness.measure("processClass.lambdaDepth" + depth,
+                                     () -> psiClass[0] = reset(text),
+                                     () -> WriteCommandAction.runWriteCommandAction(getProject(), () -> FinalModifierSupport.processClass(psiClass[0])));
+        }
+    }
+
+    /**
+     * naive：每个字段重新扫描所有构造器（原先的实现）；singlePass：一次遍历分析整个类
+     */
+    public void testFieldInitialization() {
+        for (final int fields : FIELD_COUNTS) {
+            configure(SyntheticJavaGenerator.manyFields("Dto", fields, CONSTRUCTOR_COUNT));
+            final PsiClass psiClass = firstClass();
+            final PsiField[] psiFields = psiClass.getFields();
+            BenchmarkHarness.measure("fieldInit.naive.fields" + fields, () -> {
+            }, () -> {
+                for (final PsiField field : psiFields) {
+                    NaiveFieldInitialization.isInitializedInAllConstructors(field, psiClass);
+                }
+            });
+            BenchmarkHarness.measure("fieldInit.singlePass.fields" + fields, () -> {
+            }, () -> analyzeAll(psiClass, psiFields));
+        }
+    }
+
+    public void testFieldInitializationLongConstructor() {
+        for (final int statements : CONSTRUCTOR_STATEMENTS) {
+            configure(SyntheticJavaGenerator.longConstructor("Big", statements));
+            final PsiClass psiClass = firstClass();
+            final PsiField[] psiFields = psiClass.getFields();
+            BenchmarkHarness.measure("fieldInit.singlePass.constructorStatements" + statements, () -> {
+            }, () -> analyzeAll(psiClass, psiFields));
+        }
+    }
+
+    private static void analyzeAll(final PsiClass psiClass, final PsiField[] psiFields) {
+        final FieldInitializationAnalysis analysis = FieldInitializationAnalysis.analyze(psiClass);
+        for (final PsiField field : psiFields) {
+            analysis.isDefinitelyAssigned(field);
+        }
+    }
+
+    private void configure(final String text) {
+        myFixture.configureByText("Benchmark.java", text);
+    }
+
+    private PsiClass reset(final String text) {
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> myFixture.getEditor().getDocument().setText(text));
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+        return firstClass();
+    }
+
+    private void moveCaretIntoBody(final PsiClass psiClass) {
+        myFixture.getEditor().getCaretModel().moveToOffset(psiClass.getMethods()[0].getBody().getTextOffset() + 1);
+    }
+
+    private PsiClass firstClass() {
+        final PsiFile file = myFixture.getFile();
+        return ((PsiJavaFile) file).getClasses()[0];
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
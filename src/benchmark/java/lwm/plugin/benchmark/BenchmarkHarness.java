@@ -0,0 +1,109 @@
+package lwm.plugin.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * 简单的 JMH 风格测量：预热后重复执行，记录吞吐量（ops/s）和每次操作的分配字节数，
+ * 并与 benchmark-thresholds.properties 中的阈值比较，回退超过容差时失败；没有阈值的测量只报告结果
+ *
+ * @author longwm
+ */
+public final class BenchmarkHarness {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MIN_ITERATIONS = 10;
+    private static final long MIN_MEASURE_NANOS = 2_000_000_000L;
+
+    private static final Properties THRESHOLDS = loadThresholds();
+
+    private BenchmarkHarness() {
+    }
+
+    /**
+     * 测量 {@code operation}，每次执行前调用不计时的 {@code setup}
+     */
+    public static void measure(final String name, final Runnable setup, final Runnable operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            setup.run();
+            operation.run();
+        }
+
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        long totalNanos = 0;
+        long totalBytes = 0;
+        int iterations = 0;
+        while (iterations < MIN_ITERATIONS || totalNanos < MIN_MEASURE_NANOS) {
+            setup.run();
+            final long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+            final long start = System.nanoTime();
+            operation.run();
+            totalNanos += System.nanoTime() - start;
+            totalBytes += threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+            iterations++;
+        }
+
+        final double opsPerSecond = iterations * 1e9 / totalNanos;
+        final double bytesPerOp = (double) totalBytes / iterations;
+        final double allocationRate = bytesPerOp * opsPerSecond / (1024 * 1024);
+        System.out.printf(Locale.ROOT, "%-40s %12.2f ops/s %14.0f B/op %10.1f MB/s%n", name, opsPerSecond, bytesPerOp, allocationRate);
+        record(name, opsPerSecond, bytesPerOp);
+        check(name, opsPerSecond, bytesPerOp);
+    }
+
+    private static void check(final String name, final double opsPerSecond, final double bytesPerOp) {
+        final double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0"));
+        final String minOps = THRESHOLDS.getProperty(name + ".minOpsPerSecond");
+        if (minOps != null && opsPerSecond < Double.parseDouble(minOps) * (1 - tolerance)) {
+            throw new AssertionError(String.format(Locale.ROOT, "%s regressed: %.2f ops/s, threshold %s ops/s (tolerance %.0f%%)",
+                                                   name, opsPerSecond, minOps, tolerance * 100));
+        }
+        final String maxBytes = THRESHOLDS.getProperty(name + ".maxBytesPerOp");
+        if (maxBytes != null && bytesPerOp > Double.parseDouble(maxBytes) * (1 + tolerance)) {
+            throw new AssertionError(String.format(Locale.ROOT, "%s regressed: %.0f B/op, threshold %s B/op (tolerance %.0f%%)",
+                                                   name, bytesPerOp, maxBytes, tolerance * 100));
+        }
+    }
+
+    /**
+     * 以阈值文件相同的格式追加结果，便于更新基线
+     */
+    private static void record(final String name, final double opsPerSecond, final double bytesPerOp) {
+        final String resultsFile = System.getProperty("benchmark.resultsFile");
+        if (resultsFile == null) {
+            return;
+        }
+        final Path path = Paths.get(resultsFile);
+        try {
+            Files.createDirectories(path.getParent());
+            try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(String.format(Locale.ROOT, "%s.minOpsPerSecond=%.2f%n%s.maxBytesPerOp=%.0f%n", name, opsPerSecond, name, bytesPerOp));
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Properties loadThresholds() {
+        final Properties properties = new Properties();
+        try (InputStream stream = BenchmarkHarness.class.getResourceAsStream("/benchmark-thresholds.properties")) {
+            if (stream != null) {
+                properties.load(stream);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,23 @@
+package lwm.plugin.batch;
+
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.analysis.BaseAnalysisAction;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 对项目、模块、包或自定义范围批量添加 final 修饰符
+ *
+ * @author longwm
+ */
+public class AddFinalBatchAction extends BaseAnalysisAction {
+
+    public AddFinalBatchAction() {
+        super("Add Final Modifiers", "Add final modifiers");
+    }
+
+    @Override
+    protected void analyze(@NotNull final Project project, @NotNull final AnalysisScope scope) {
+        AddFinalBatchRunner.getInstance(project).start(scope);
+    }
+}
@@ -0,0 +1,355 @@
+package lwm.plugin.batch;
+
+import com.intellij.analysis.AnalysisScope;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.util.DocumentUtil;
+import lwm.plugin.core.CandidateProvider;
+import lwm.plugin.core.TextEdit;
+import lwm.plugin.metrics.AddFinalMetrics;
+import lwm.plugin.settings.AddFinalPolicy;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量添加 final 修饰符：后台逐个文件流式分析，分批在写命令中应用修改，可取消也可继续。
+ * 文件应用完成后立即释放候选指针并保存文档，同时被引用的 PSI 只有正在分析和等待应用的少数文件，
+ * 处理百万行级别的范围时内存不随范围增长；结束时报告修改数量和堆内存峰值
+ *
+ * @author longwm
+ */
+@Service
+public final class AddFinalBatchRunner {
+
+    static final String COMMAND_NAME = "Add final modifiers";
+
+    /**
+     * 单个写命令在 EDT 上占用的目标时间
+     */
+    private static final long WRITE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final int INITIAL_BATCH_SIZE = 64;
+
+    static final int MAX_BATCH_SIZE = 1024;
+
+    static final String NOTIFICATION_GROUP = "Add Final Modifier";
+
+    private final Project project;
+
+    /**
+     * 尚未处理完的文件，取消后保留以便继续；文件按分析完成的顺序移除
+     */
+    private final Set<VirtualFile> pendingFiles = new LinkedHashSet<>();
+
+    private volatile boolean running;
+
+    public AddFinalBatchRunner(@NotNull final Project project) {
+        this.project = project;
+    }
+
+    public static AddFinalBatchRunner getInstance(@NotNull final Project project) {
+        return project.getService(AddFinalBatchRunner.class);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean hasPendingFiles() {
+        synchronized (pendingFiles) {
+            return !pendingFiles.isEmpty();
+        }
+    }
+
+    /**
+     * 对指定范围开始新的批量处理，丢弃之前未完成的进度
+     */
+    public void start(@NotNull final AnalysisScope scope) {
+        if (running) {
+            return;
+        }
+        running = true;
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, COMMAND_NAME, true) {
+            @Override
+            public void run(@NotNull final ProgressIndicator indicator) {
+                indicator.setText("Collecting source files");
+                final List<VirtualFile> files = new ArrayList<>();
+                ReadAction.run(() -> scope.accept(virtualFile -> {
+                    indicator.checkCanceled();
+                    if (!virtualFile.isDirectory() && CandidateProvider.forFile(virtualFile) != null) {
+                        files.add(virtualFile);
+                    }
+                    return true;
+                }));
+                synchronized (pendingFiles) {
+                    pendingFiles.clear();
+                    pendingFiles.addAll(files);
+                }
+                processPendingFiles(indicator);
+            }
+
+            @Override
+            public void onFinished() {
+                running = false;
+            }
+        });
+    }
+
+    /**
+     * 继续处理上次取消时剩余的文件
+     */
+    public void resume() {
+        if (running || !hasPendingFiles()) {
+            return;
+        }
+        running = true;
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, COMMAND_NAME, true) {
+            @Override
+            public void run(@NotNull final ProgressIndicator indicator) {
+                processPendingFiles(indicator);
+            }
+
+            @Override
+            public void onFinished() {
+                running = false;
+            }
+        });
+    }
+
+    private void processPendingFiles(final ProgressIndicator indicator) {
+        indicator.setIndeterminate(false);
+        final List<VirtualFile> files;
+        synchronized (pendingFiles) {
+            files = new ArrayList<>(pendingFiles);
+        }
+        resetPeakHeapUsage();
+        final int[] done = {0};
+        final int[] added = {0};
+        // 只读阶段并行且有界，每个文件分析完成后立即在 EDT 上分批应用
+        new ParallelCandidateCollector(project).stream(files, indicator, result -> {
+            indicator.setText2(result.file.getPresentableUrl());
+            final CandidateProvider provider = CandidateProvider.forFile(result.file);
+            if (provider != null) {
+                added[0] += applyInBatches(provider, result.file, result.pointers, indicator);
+            }
+            release(result);
+            // 文件处理完成后才移除，取消时未应用的文件会在继续时重新分析
+            synchronized (pendingFiles) {
+                pendingFiles.remove(result.file);
+            }
+            indicator.setFraction((double) ++done[0] / files.size());
+        });
+        indicator.setFraction(1);
+        notifyFinished(done[0], added[0], peakHeapUsage());
+    }
+
+    /**
+     * 释放文件的候选指针，有修改时保存文档，使文件的 PSI 和文档可以被回收
+     */
+    private void release(final ParallelCandidateCollector.FileCandidates result) {
+        final SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        for (final SmartPsiElementPointer<PsiElement> pointer : result.pointers) {
+            pointerManager.removePointer(pointer);
+        }
+        if (result.pointers.isEmpty()) {
+            return;
+        }
+        ApplicationManager.getApplication().invokeAndWait(() -> {
+            final FileDocumentManager documentManager = FileDocumentManager.getInstance();
+            final Document document = documentManager.getCachedDocument(result.file);
+            if (document != null && documentManager.isDocumentUnsaved(document)) {
+                documentManager.saveDocument(document);
+            }
+        }, ModalityState.defaultModalityState());
+    }
+
+    private void notifyFinished(final int files, final int modifiers, final long peakHeapBytes) {
+        if (project.isDisposed()) {
+            return;
+        }
+        NotificationGroupManager.getInstance().getNotificationGroup(NOTIFICATION_GROUP)
+                .createNotification(COMMAND_NAME, String.format("%d modifiers added in %d files, peak heap %s",
+                        modifiers, files, StringUtil.formatFileSize(peakHeapBytes)), NotificationType.INFORMATION)
+                .notify(project);
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * 自上次 {@link #resetPeakHeapUsage()} 以来各堆内存池峰值之和
+     */
+    static long peakHeapUsage() {
+        long peak = 0;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * 分批应用修改，批次之间响应取消；返回修改的元素数。
+     * 重新检查和计算文本修改都在后台读操作中一次做完，写命令中只按计划直接修改文档、不提交文档，
+     * 每个写命令的耗时只和批次大小有关，与文件大小无关。批次大小按实际耗时自适应调整，
+     * 使每个写命令尽量不超过 {@link #WRITE_BUDGET_NANOS}；文档被用户修改时在后台重新计划
+     */
+    int applyInBatches(final CandidateProvider provider, final VirtualFile file,
+                       final List<SmartPsiElementPointer<PsiElement>> candidates, final ProgressIndicator indicator) {
+        EditPlan plan = plan(provider, file, candidates, indicator);
+        int applied = 0;
+        int batchSize = INITIAL_BATCH_SIZE;
+        int next = 0;
+        while (next < plan.edits.size()) {
+            indicator.checkCanceled();
+            if (project.isDisposed()) {
+                return applied;
+            }
+            final EditPlan current = plan;
+            final List<TextEdit> batch = current.edits.subList(next, Math.min(next + batchSize, current.edits.size()));
+            final long[] elapsed = {-1};
+            ApplicationManager.getApplication().invokeAndWait(() -> {
+                if (current.document.getModificationStamp() != current.stamp) {
+                    return;
+                }
+                final long start = System.nanoTime();
+                WriteCommandAction.writeCommandAction(project)
+                        .withName(COMMAND_NAME)
+                        .withGroupId(COMMAND_NAME)
+                        .run(() -> DocumentUtil.executeInBulk(current.document, batch.size() > 1, () -> {
+                            for (final TextEdit edit : batch) {
+                                current.document.replaceString(edit.getStartOffset(), edit.getEndOffset(), edit.getText());
+                            }
+                        }));
+                current.stamp = current.document.getModificationStamp();
+                elapsed[0] = System.nanoTime() - start;
+            }, ModalityState.defaultModalityState());
+
+            if (elapsed[0] < 0) {
+                // 文档在批次之间被修改，已应用的元素不再需要修改，剩余的重新计划
+                plan = plan(provider, file, candidates, indicator);
+                next = 0;
+                continue;
+            }
+            AddFinalMetrics.WRITE_ACTION.record(elapsed[0]);
+            AddFinalMetrics.MODIFIERS_ADDED.add(batch.size());
+            applied += batch.size();
+            next += batch.size();
+            if (elapsed[0] > WRITE_BUDGET_NANOS) {
+                batchSize = Math.max(1, batchSize / 2);
+            } else if (elapsed[0] < WRITE_BUDGET_NANOS / 2) {
+                batchSize = Math.min(MAX_BATCH_SIZE, batchSize * 2);
+            }
+        }
+        return applied + applyFallback(provider, plan.fallback, indicator);
+    }
+
+    /**
+     * 无法直接计算文本修改的少数元素在一个写命令中通过 PSI 修改，需要先提交文档
+     */
+    private int applyFallback(final CandidateProvider provider, final List<SmartPsiElementPointer<PsiElement>> fallback,
+                              final ProgressIndicator indicator) {
+        if (fallback.isEmpty() || project.isDisposed()) {
+            return 0;
+        }
+        indicator.checkCanceled();
+        final int[] applied = {0};
+        ApplicationManager.getApplication().invokeAndWait(() -> WriteCommandAction.writeCommandAction(project)
+                .withName(COMMAND_NAME)
+                .withGroupId(COMMAND_NAME)
+                .run(() -> {
+                    PsiDocumentManager.getInstance(project).commitAllDocuments();
+                    final List<PsiElement> elements = new ArrayList<>(fallback.size());
+                    for (final SmartPsiElementPointer<PsiElement> pointer : fallback) {
+                        final PsiElement element = pointer.getElement();
+                        if (element != null && element.isValid()) {
+                            elements.add(element);
+                        }
+                    }
+                    provider.apply(elements);
+                    applied[0] = elements.size();
+                }), ModalityState.defaultModalityState());
+        return applied[0];
+    }
+
+    /**
+     * 在后台读操作中重新检查候选并计算文本修改，保证与意图的结果一致
+     */
+    private EditPlan plan(final CandidateProvider provider, final VirtualFile file,
+                          final List<SmartPsiElementPointer<PsiElement>> candidates, final ProgressIndicator indicator) {
+        return ReadAction
+                .nonBlocking(() -> {
+                    final Document document = FileDocumentManager.getInstance().getDocument(file);
+                    final AddFinalPolicy policy = AddFinalPolicy.current();
+                    final List<TextEdit> edits = new ArrayList<>(candidates.size());
+                    final List<SmartPsiElementPointer<PsiElement>> fallback = new ArrayList<>();
+                    for (final SmartPsiElementPointer<PsiElement> candidate : candidates) {
+                        final PsiElement element = candidate.getElement();
+                        if (!provider.needsChange(element, policy)) {
+                            continue;
+                        }
+                        final TextEdit edit = document == null ? null : provider.findEdit(element);
+                        if (edit != null) {
+                            edits.add(edit);
+                        } else {
+                            fallback.add(candidate);
+                        }
+                    }
+                    edits.sort(TextEdit.FROM_END);
+                    return new EditPlan(document, edits, fallback);
+                })
+                .inSmartMode(project)
+                .withDocumentsCommitted(project)
+                .wrapProgress(indicator)
+                .executeSynchronously();
+    }
+
+    /**
+     * 一个文件的修改计划：文本修改按从后往前排序，依次应用时剩余修改的偏移保持有效，
+     * 前提是文档只被这些修改改动过，因此记录预期的修改时间戳
+     */
+    private static final class EditPlan {
+        private final Document document;
+        private final List<TextEdit> edits;
+        private final List<SmartPsiElementPointer<PsiElement>> fallback;
+        private long stamp;
+
+        EditPlan(final Document document, final List<TextEdit> edits, final List<SmartPsiElementPointer<PsiElement>> fallback) {
+            this.document = document;
+            this.edits = edits;
+            this.fallback = fallback;
+            this.stamp = document == null ? 0 : document.getModificationStamp();
+        }
+    }
+}
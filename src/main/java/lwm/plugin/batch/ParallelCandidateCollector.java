@@ -0,0 +1,149 @@
+package lwm.plugin.batch;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import lwm.plugin.core.CandidateProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 只读阶段：在有界线程池上并行分析文件，按文件类型交给对应的 {@link CandidateProvider}，
+ * 每个文件的结果一产生就交给调用线程上的应用阶段。已分析但未应用的文件数不超过上限，
+ * 同一时刻只有少量文件的 PSI 和候选指针被引用，内存占用与范围大小无关
+ *
+ * @author longwm
+ */
+public final class ParallelCandidateCollector {
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * 已提交分析但还没有被应用阶段取走的文件数上限
+     */
+    static final int MAX_IN_FLIGHT_FILES = 2 * THREADS;
+
+    /**
+     * 所有批量处理共用的有界线程池，建立在应用线程池之上，不需要关闭
+     */
+    private static final ExecutorService EXECUTOR =
+            AppExecutorUtil.createBoundedApplicationPoolExecutor("Add final modifiers analysis", THREADS);
+
+    private final Project project;
+
+    public ParallelCandidateCollector(@NotNull final Project project) {
+        this.project = project;
+    }
+
+    /**
+     * 按完成顺序把每个文件的候选元素交给 {@code applyStage}，{@code applyStage} 在调用线程上执行
+     */
+    public void stream(@NotNull final Collection<VirtualFile> files, @NotNull final ProgressIndicator indicator,
+                       @NotNull final Consumer<FileCandidates> applyStage) {
+        final CompletionService<FileCandidates> completion = new ExecutorCompletionService<>(EXECUTOR);
+        final Iterator<VirtualFile> remaining = files.iterator();
+        int inFlight = 0;
+        while (remaining.hasNext() || inFlight > 0) {
+            while (inFlight < MAX_IN_FLIGHT_FILES && remaining.hasNext()) {
+                final VirtualFile file = remaining.next();
+                // 每个文件单独的非阻塞读操作，写操作到来时让出并自动重试
+                completion.submit(() -> new FileCandidates(file, ReadAction.nonBlocking(() -> collect(file))
+                        .inSmartMode(project)
+                        .wrapProgress(indicator)
+                        .executeSynchronously()));
+                inFlight++;
+            }
+            indicator.checkCanceled();
+            final Future<FileCandidates> done = poll(completion);
+            if (done != null) {
+                inFlight--;
+                applyStage.accept(get(done));
+            }
+        }
+    }
+
+    private static Future<FileCandidates> poll(final CompletionService<FileCandidates> completion) {
+        try {
+            return completion.poll(50, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException(e);
+        }
+    }
+
+    private static FileCandidates get(final Future<FileCandidates> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessCanceledException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof ProcessCanceledException) {
+                throw (ProcessCanceledException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * 在读操作中收集单个文件的候选元素
+     */
+    @NotNull
+    public List<SmartPsiElementPointer<PsiElement>> collect(@NotNull final VirtualFile file) {
+        final CandidateProvider provider = CandidateProvider.forFile(file);
+        if (!file.isValid() || provider == null) {
+            return Collections.emptyList();
+        }
+        final PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+        if (psiFile == null) {
+            return Collections.emptyList();
+        }
+        final SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        final List<SmartPsiElementPointer<PsiElement>> candidates = new ArrayList<>();
+        provider.collectCandidates(psiFile, element -> candidates.add(pointerManager.createSmartPsiElementPointer(element)));
+        return candidates;
+    }
+
+    /**
+     * 一个文件的分析结果
+     */
+    public static final class FileCandidates {
+        final VirtualFile file;
+        final List<SmartPsiElementPointer<PsiElement>> pointers;
+
+        FileCandidates(final VirtualFile file, final List<SmartPsiElementPointer<PsiElement>> pointers) {
+            this.file = file;
+            this.pointers = pointers;
+        }
+
+        @NotNull
+        public VirtualFile getFile() {
+            return file;
+        }
+
+        @NotNull
+        public List<SmartPsiElementPointer<PsiElement>> getPointers() {
+            return pointers;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package lwm.plugin.batch;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 继续上次被取消的批量添加 final 修饰符
+ *
+ * @author longwm
+ */
+public class ResumeAddFinalBatchAction extends AnAction {
+
+    @Override
+    public void update(@NotNull final AnActionEvent e) {
+        final Project project = e.getProject();
+        if (project == null) {
+            e.getPresentation().setEnabledAndVisible(false);
+            return;
+        }
+        final AddFinalBatchRunner runner = AddFinalBatchRunner.getInstance(project);
+        e.getPresentation().setEnabledAndVisible(!runner.isRunning() && runner.hasPendingFiles());
+    }
+
+    @Override
+    public void actionPerformed(@NotNull final AnActionEvent e) {
+        final Project project = e.getProject();
+        if (project != null) {
+            AddFinalBatchRunner.getInstance(project).resume();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package lwm.plugin.core;
+
+/**
+ * 分析时如何判断引用指向哪个变量
+ *
+ * @author longwm
+ */
+public enum AnalysisMode {
+    /**
+     * 解析引用，结果精确，用于编辑器和批量修改
+     */
+    RESOLVE,
+    /**
+     * 不解析，只按名字匹配：同名的写入都算作写入，无法确定的赋值不算初始化。
+     * 结果偏保守，只依赖文件自身内容，可以在索引中使用
+     */
+    SYNTACTIC
+}
@@ -0,0 +1,63 @@
+package lwm.plugin.core;
+
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import lwm.plugin.settings.AddFinalPolicy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * 一种语言接入“只读收集候选元素、再每个文件批量应用”流程的扩展点，
+ * 批量操作按文件选择对应的实现
+ *
+ * @author longwm
+ */
+public interface CandidateProvider {
+
+    ExtensionPointName<CandidateProvider> EP_NAME = ExtensionPointName.create("lwm.plugins.candidateProvider");
+
+    /**
+     * 找到能处理该文件的实现，没有时返回 null
+     */
+    @Nullable
+    static CandidateProvider forFile(@NotNull final VirtualFile file) {
+        for (final CandidateProvider provider : EP_NAME.getExtensionList()) {
+            if (provider.isApplicable(file)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否处理该文件，只根据文件类型判断，不需要读操作
+     */
+    boolean isApplicable(@NotNull VirtualFile file);
+
+    /**
+     * 在读操作中收集文件里的候选元素，应用当前设置中的策略
+     */
+    void collectCandidates(@NotNull PsiFile file, @NotNull Consumer<? super PsiElement> consumer);
+
+    /**
+     * 在写操作中应用前重新确认元素仍然需要修改
+     */
+    boolean needsChange(@Nullable PsiElement element, @NotNull AddFinalPolicy policy);
+
+    /**
+     * 在读操作中计算已确认元素对应的文本修改。批量操作分批在写命令中直接修改文档，不需要每批都提交文档；
+     * 无法直接确定文本修改的元素返回 null，由 {@link #apply} 通过 PSI 修改
+     */
+    @Nullable
+    TextEdit findEdit(@NotNull PsiElement element);
+
+    /**
+     * 修改已确认的元素，需要在写操作中调用
+     */
+    void apply(@NotNull Collection<? extends PsiElement> elements);
+}
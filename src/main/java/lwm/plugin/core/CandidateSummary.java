@@ -0,0 +1,42 @@
+package lwm.plugin.core;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import lwm.plugin.settings.AddFinalSettings;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 方法和类中缺少 final 的候选元素数量，缓存到所在文件或设置修改为止，
+ * 用于在光标移动时快速判断意图是否可用
+ *
+ * @author longwm
+ */
+public final class CandidateSummary {
+
+    private CandidateSummary() {
+    }
+
+    /**
+     * 方法参数和局部变量中可以添加 final 的数量
+     */
+    public static int count(@NotNull final PsiMethod method) {
+        return CachedValuesManager.getCachedValue(method, () -> {
+            final int[] count = {0};
+            FinalModifierSupport.collectCandidates(method, candidate -> count[0]++);
+            return CachedValueProvider.Result.create(count[0], method, AddFinalSettings.getInstance().getModificationTracker());
+        });
+    }
+
+    /**
+     * 整个类（包括内部类、初始化块和 lambda）中可以添加 final 的数量
+     */
+    public static int count(@NotNull final PsiClass psiClass) {
+        return CachedValuesManager.getCachedValue(psiClass, () -> {
+            final int[] count = {0};
+            FinalModifierSupport.collectCandidates(psiClass, candidate -> count[0]++);
+            return CachedValueProvider.Result.create(count[0], psiClass, AddFinalSettings.getInstance().getModificationTracker());
+        });
+    }
+}
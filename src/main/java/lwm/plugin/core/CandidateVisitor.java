@@ -0,0 +1,107 @@
+package lwm.plugin.core;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiParameter;
+import lwm.plugin.metrics.AddFinalMetrics;
+import lwm.plugin.settings.AddFinalPolicy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Consumer;
+
+/**
+ * 一次遍历中处理所有变量：字段、方法/lambda/catch/for-each 参数和局部变量，
+ * 包括内部类、匿名类和初始化块中的变量。边遍历边交给消费者，不生成中间集合。
+ * 指定范围时只进入与范围相交的子树，只报告声明在范围内的变量
+ *
+ * @author longwm
+ */
+class CandidateVisitor extends JavaRecursiveElementWalkingVisitor {
+
+    private final Consumer<? super PsiModifierListOwner> consumer;
+    private final TextRange range;
+    private final AnalysisMode mode;
+    private final AddFinalPolicy policy;
+    private final boolean recordMetrics;
+
+    CandidateVisitor(@NotNull final Consumer<? super PsiModifierListOwner> consumer) {
+        this(consumer, null);
+    }
+
+    CandidateVisitor(@NotNull final Consumer<? super PsiModifierListOwner> consumer, @Nullable final TextRange range) {
+        this(consumer, range, AnalysisMode.RESOLVE, AddFinalPolicy.current());
+    }
+
+    CandidateVisitor(@NotNull final Consumer<? super PsiModifierListOwner> consumer, @Nullable final TextRange range,
+                     @NotNull final AnalysisMode mode, @NotNull final AddFinalPolicy policy) {
+        this(consumer, range, mode, policy, true);
+    }
+
+    CandidateVisitor(@NotNull final Consumer<? super PsiModifierListOwner> consumer, @Nullable final TextRange range,
+                     @NotNull final AnalysisMode mode, @NotNull final AddFinalPolicy policy, final boolean recordMetrics) {
+        this.consumer = consumer;
+        this.range = range;
+        this.mode = mode;
+        this.policy = policy;
+        this.recordMetrics = recordMetrics;
+    }
+
+    /**
+     * 遍历使用的策略，文件级规则由调用方在遍历前判断一次
+     */
+    @NotNull
+    AddFinalPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 是否把遍历计入 {@link AddFinalMetrics}
+     */
+    boolean isRecordingMetrics() {
+        return recordMetrics;
+    }
+
+    @Override
+    public void visitElement(@NotNull final PsiElement element) {
+        if (range == null || range.intersects(element.getTextRange())) {
+            super.visitElement(element);
+        }
+    }
+
+    @Override
+    public void visitField(final PsiField field) {
+        check(field);
+        super.visitField(field);
+    }
+
+    @Override
+    public void visitParameter(final PsiParameter parameter) {
+        check(parameter);
+        super.visitParameter(parameter);
+    }
+
+    @Override
+    public void visitLocalVariable(final PsiLocalVariable variable) {
+        check(variable);
+        super.visitLocalVariable(variable);
+    }
+
+    private void check(final PsiModifierListOwner element) {
+        if (range != null && !range.contains(element.getTextOffset())) {
+            return;
+        }
+        ProgressManager.checkCanceled();
+        if (recordMetrics) {
+            AddFinalMetrics.ELEMENTS_VISITED.increment();
+        }
+        if (policy.accepts(element) && FinalModifierSupport.isMissingFinal(element, mode)) {
+            consumer.accept(element);
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package lwm.plugin.core;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiBlockStatement;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassInitializer;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiExpressionStatement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiIfStatement;
+import com.intellij.psi.PsiLabeledStatement;
+import com.intellij.psi.PsiLambdaExpression;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiReturnStatement;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiSynchronizedStatement;
+import com.intellij.psi.PsiThisExpression;
+import com.intellij.psi.PsiTryStatement;
+import com.intellij.psi.PsiVariable;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import lwm.plugin.metrics.AddFinalMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 类级别的字段初始化分析：先建立 this(...) 构造器委托图，每个构造器和实例初始化块只遍历一次，
+ * 得到所有构造路径上都被确定赋值的字段集合，之后每个字段的查询只是一次集合查找
+ *
+ * @author longwm
+ */
+public final class FieldInitializationAnalysis {
+
+    private final Set<PsiField> definitelyAssignedFields;
+    private final Set<PsiMethod> delegatingConstructors;
+
+    private FieldInitializationAnalysis(final Set<PsiField> definitelyAssignedFields, final Set<PsiMethod> delegatingConstructors) {
+        this.definitelyAssignedFields = definitelyAssignedFields;
+        this.delegatingConstructors = delegatingConstructors;
+    }
+
+    /**
+     * 获取类的分析结果，文件修改前重复调用直接复用缓存
+     */
+    @NotNull
+    public static FieldInitializationAnalysis of(@NotNull final PsiClass psiClass) {
+        return CachedValuesManager.getCachedValue(psiClass,
+                () -> CachedValueProvider.Result.create(analyze(psiClass, AnalysisMode.RESOLVE), psiClass));
+    }
+
+    /**
+     * 以指定模式获取类的分析结果，两种模式的结果分别缓存
+     */
+    @NotNull
+    public static FieldInitializationAnalysis of(@NotNull final PsiClass psiClass, @NotNull final AnalysisMode mode) {
+        if (mode == AnalysisMode.RESOLVE) {
+            return of(psiClass);
+        }
+        return CachedValuesManager.getCachedValue(psiClass,
+                () -> CachedValueProvider.Result.create(analyze(psiClass, AnalysisMode.SYNTACTIC), psiClass));
+    }
+
+    /**
+     * 字段是否在每个构造器（包括 this(...) 委托链和实例初始化块）中都被确定赋值
+     */
+    public boolean isDefinitelyAssigned(@NotNull final PsiField field) {
+        return definitelyAssignedFields.contains(field);
+    }
+
+    /**
+     * 本类构造器的第一条语句是否是 this(...) 调用，结果来自分析时建立的委托图
+     */
+    public boolean isDelegating(@NotNull final PsiMethod constructor) {
+        return delegatingConstructors.contains(constructor);
+    }
+
+    /**
+     * 构造器的第一条语句是否是 this(...) 调用
+     */
+    public static boolean isDelegatingConstructor(@NotNull final PsiMethod constructor) {
+        final PsiCodeBlock body = constructor.getBody();
+        return body != null && findThisCall(body) != null;
+    }
+
+    @Nullable
+    private static PsiMethodCallExpression findThisCall(final PsiCodeBlock body) {
+        final PsiStatement[] statements = body.getStatements();
+        if (statements.length == 0 || !(statements[0] instanceof PsiExpressionStatement)) {
+            return null;
+        }
+        final PsiExpression expression = ((PsiExpressionStatement) statements[0]).getExpression();
+        if (!(expression instanceof PsiMethodCallExpression)) {
+            return null;
+        }
+        final PsiMethodCallExpression call = (PsiMethodCallExpression) expression;
+        return "this".equals(call.getMethodExpression().getReferenceName()) ? call : null;
+    }
+
+    /**
+     * 不使用缓存直接分析
+     */
+    @NotNull
+    public static FieldInitializationAnalysis analyze(@NotNull final PsiClass psiClass) {
+        return analyze(psiClass, AnalysisMode.RESOLVE);
+    }
+
+    /**
+     * 以指定模式不使用缓存直接分析
+     */
+    @NotNull
+    public static FieldInitializationAnalysis analyze(@NotNull final PsiClass psiClass, @NotNull final AnalysisMode mode) {
+        return new Analyzer(psiClass, mode).run();
+    }
+
+    private static final class Analyzer {
+        private final PsiClass psiClass;
+        private final AnalysisMode mode;
+        /**
+         * 构造器委托图：委托构造器到被委托构造器，找不到被委托构造器时值为 null
+         */
+        private final Map<PsiMethod, PsiMethod> delegateOf = new HashMap<>();
+        private final Map<PsiMethod, Set<PsiField>> assignedByConstructor = new HashMap<>();
+        private final Set<PsiMethod> inProgress = new HashSet<>();
+        private final Map<PsiElement, Set<String>> declaredNamesByMember = new HashMap<>();
+        /**
+         * 本类实例字段的名字，赋值左侧的名字不在其中时不需要解析
+         */
+        private final Set<String> instanceFieldNames = new HashSet<>();
+        private Set<PsiField> assignedByInitializers;
+        /**
+         * 当前遍历的构造器是否可能已经通过 return 结束，之后的赋值不再是确定赋值
+         */
+        private boolean mayHaveReturned;
+
+        Analyzer(final PsiClass psiClass, final AnalysisMode mode) {
+            this.psiClass = psiClass;
+            this.mode = mode;
+            for (final PsiField field : psiClass.getFields()) {
+                if (!field.hasModifierProperty(PsiModifier.STATIC)) {
+                    instanceFieldNames.add(field.getName());
+                }
+            }
+        }
+
+        FieldInitializationAnalysis run() {
+            final PsiMethod[] constructors = psiClass.getConstructors();
+            // 委托图只看每个构造器的第一条语句，先建好供所有字段复用
+            for (final PsiMethod constructor : constructors) {
+                final PsiCodeBlock body = constructor.getBody();
+                final PsiMethodCallExpression thisCall = body == null ? null : findThisCall(body);
+                if (thisCall != null) {
+                    delegateOf.put(constructor, findThisDelegate(thisCall));
+                }
+            }
+            return new FieldInitializationAnalysis(definitelyAssigned(constructors), new HashSet<>(delegateOf.keySet()));
+        }
+
+        private Set<PsiField> definitelyAssigned(final PsiMethod[] constructors) {
+            assignedByInitializers = new HashSet<>();
+            for (final PsiClassInitializer initializer : psiClass.getInitializers()) {
+                if (!initializer.hasModifierProperty(PsiModifier.STATIC)) {
+                    mayHaveReturned = false;
+                    collectDefiniteAssignments(initializer.getBody(), assignedByInitializers);
+                }
+            }
+
+            if (constructors.length == 0) {
+                // 默认构造器只会执行实例初始化块
+                return assignedByInitializers;
+            }
+
+            Set<PsiField> result = null;
+            for (final PsiMethod constructor : constructors) {
+                final Set<PsiField> assigned = assignedBy(constructor);
+                if (result == null) {
+                    result = new HashSet<>(assigned);
+                } else {
+                    result.retainAll(assigned);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 构造器执行完毕时确定已赋值的字段，委托链上的结果会被记住，每个构造器只遍历一次
+         */
+        private Set<PsiField> assignedBy(final PsiMethod constructor) {
+            final Set<PsiField> cached = assignedByConstructor.get(constructor);
+            if (cached != null) {
+                return cached;
+            }
+            if (!inProgress.add(constructor)) {
+                // this(...) 循环调用无法编译，保守地认为没有赋值
+                return Collections.emptySet();
+            }
+
+            final Set<PsiField> assigned = new HashSet<>();
+            final PsiCodeBlock body = constructor.getBody();
+            if (body != null) {
+                if (delegateOf.containsKey(constructor)) {
+                    // 找不到被委托的构造器时保守地认为没有继承任何赋值
+                    final PsiMethod delegate = delegateOf.get(constructor);
+                    if (delegate != null) {
+                        assigned.addAll(assignedBy(delegate));
+                    }
+                } else {
+                    // 不委托给 this(...) 的构造器会先执行实例初始化块
+                    assigned.addAll(assignedByInitializers);
+                }
+                mayHaveReturned = false;
+                collectDefiniteAssignments(body, assigned);
+            }
+
+            inProgress.remove(constructor);
+            assignedByConstructor.put(constructor, assigned);
+            return assigned;
+        }
+
+        @Nullable
+        private PsiMethod findThisDelegate(final PsiMethodCallExpression call) {
+            if (mode == AnalysisMode.SYNTACTIC) {
+                return findConstructorByArgumentCount(call.getArgumentList().getExpressionCount());
+            }
+            AddFinalMetrics.RESOLVES.increment();
+            final PsiMethod target = call.resolveMethod();
+            return target != null && target.isConstructor() && psiClass.equals(target.getContainingClass()) ? target : null;
+        }
+
+        /**
+         * 不解析时只能按参数个数匹配，个数相同的构造器不唯一时返回 null
+         */
+        @Nullable
+        private PsiMethod findConstructorByArgumentCount(final int argumentCount) {
+            PsiMethod found = null;
+            for (final PsiMethod constructor : psiClass.getConstructors()) {
+                if (constructor.getParameterList().getParametersCount() == argumentCount && !constructor.isVarArgs()) {
+                    if (found != null) {
+                        return null;
+                    }
+                    found = constructor;
+                }
+            }
+            return found;
+        }
+
+        private void collectDefiniteAssignments(final PsiCodeBlock block, final Set<PsiField> assigned) {
+            if (block == null) {
+                return;
+            }
+            for (final PsiStatement statement : block.getStatements()) {
+                ProgressManager.checkCanceled();
+                collectDefiniteAssignments(statement, assigned);
+                if (!mayHaveReturned && containsReturn(statement)) {
+                    mayHaveReturned = true;
+                }
+            }
+        }
+
+        /**
+         * 只有在语句执行后一定发生的赋值才计入；循环、switch、lambda 等位置中的赋值不算，
+         * 可能已经 return 的位置之后的赋值也不算。抛出异常不要求字段已赋值，不影响结果
+         */
+        private void collectDefiniteAssignments(final PsiStatement statement, final Set<PsiField> assigned) {
+            if (mayHaveReturned) {
+                return;
+            }
+            if (statement instanceof PsiExpressionStatement) {
+                final PsiExpression expression = ((PsiExpressionStatement) statement).getExpression();
+                if (expression instanceof PsiAssignmentExpression) {
+                    final PsiField field = assignedField((PsiAssignmentExpression) expression);
+                    if (field != null) {
+                        assigned.add(field);
+                    }
+                }
+            } else if (statement instanceof PsiBlockStatement) {
+                collectDefiniteAssignments(((PsiBlockStatement) statement).getCodeBlock(), assigned);
+            } else if (statement instanceof PsiSynchronizedStatement) {
+                collectDefiniteAssignments(((PsiSynchronizedStatement) statement).getBody(), assigned);
+            } else if (statement instanceof PsiLabeledStatement) {
+                final PsiStatement labeled = ((PsiLabeledStatement) statement).getStatement();
+                if (labeled != null) {
+                    collectDefiniteAssignments(labeled, assigned);
+                }
+            } else if (statement instanceof PsiTryStatement) {
+                collectDefiniteAssignments(((PsiTryStatement) statement).getFinallyBlock(), assigned);
+            } else if (statement instanceof PsiIfStatement) {
+                final PsiIfStatement ifStatement = (PsiIfStatement) statement;
+                final PsiStatement thenBranch = ifStatement.getThenBranch();
+                final PsiStatement elseBranch = ifStatement.getElseBranch();
+                if (thenBranch != null && elseBranch != null) {
+                    // 两个分支都赋值才算确定赋值；每个分支内的 return 只影响该分支之后的赋值
+                    final Set<PsiField> thenAssigned = new HashSet<>();
+                    collectDefiniteAssignments(thenBranch, thenAssigned);
+                    final boolean thenReturned = mayHaveReturned;
+                    mayHaveReturned = false;
+                    if (!thenAssigned.isEmpty()) {
+                        final Set<PsiField> elseAssigned = new HashSet<>();
+                        collectDefiniteAssignments(elseBranch, elseAssigned);
+                        thenAssigned.retainAll(elseAssigned);
+                        assigned.addAll(thenAssigned);
+                    }
+                    mayHaveReturned |= thenReturned;
+                }
+            }
+        }
+
+        /**
+         * 语句中是否有结束构造器的 return，lambda 和内部类中的 return 不算；
+         * 表达式语句中只可能出现在 lambda 或内部类里，直接跳过
+         */
+        private static boolean containsReturn(final PsiStatement statement) {
+            if (statement instanceof PsiReturnStatement) {
+                return true;
+            }
+            if (statement instanceof PsiExpressionStatement) {
+                return false;
+            }
+            final boolean[] found = {false};
+            statement.accept(new JavaRecursiveElementWalkingVisitor() {
+                @Override
+                public void visitReturnStatement(final PsiReturnStatement returnStatement) {
+                    found[0] = true;
+                    stopWalking();
+                }
+
+                @Override
+                public void visitLambdaExpression(final PsiLambdaExpression expression) {
+                }
+
+                @Override
+                public void visitClass(final PsiClass aClass) {
+                }
+            });
+            return found[0];
+        }
+
+        @Nullable
+        private PsiField assignedField(final PsiAssignmentExpression assignment) {
+            if (assignment.getOperationTokenType() != JavaTokenType.EQ) {
+                return null;
+            }
+            final PsiExpression lhs = PsiUtil.skipParenthesizedExprDown(assignment.getLExpression());
+            if (!(lhs instanceof PsiReferenceExpression)) {
+                return null;
+            }
+            final PsiReferenceExpression ref = (PsiReferenceExpression) lhs;
+            // 先按名字过滤，只有可能是本类实例字段的赋值才需要解析
+            if (!instanceFieldNames.contains(ref.getReferenceName())) {
+                return null;
+            }
+            final PsiExpression qualifier = ref.getQualifierExpression();
+            if (qualifier != null && !(qualifier instanceof PsiThisExpression && ((PsiThisExpression) qualifier).getQualifier() == null)) {
+                return null;
+            }
+            if (mode == AnalysisMode.SYNTACTIC) {
+                return findFieldByName(ref, qualifier == null);
+            }
+            AddFinalMetrics.RESOLVES.increment();
+            final PsiElement target = ref.resolve();
+            if (target instanceof PsiField && psiClass.equals(((PsiField) target).getContainingClass())) {
+                return (PsiField) target;
+            }
+            return null;
+        }
+
+        /**
+         * 按名字查找本类字段；不带 this 的名字如果被构造器或初始化块中的参数、局部变量遮蔽则不算
+         */
+        @Nullable
+        private PsiField findFieldByName(final PsiReferenceExpression ref, final boolean unqualified) {
+            final String name = ref.getReferenceName();
+            if (name == null) {
+                return null;
+            }
+            if (unqualified) {
+                final PsiElement member = PsiTreeUtil.getParentOfType(ref, PsiMethod.class, PsiClassInitializer.class);
+                if (member != null && declaredNamesByMember.computeIfAbsent(member, Analyzer::declaredNames).contains(name)) {
+                    return null;
+                }
+            }
+            return psiClass.findFieldByName(name, false);
+        }
+
+        private static Set<String> declaredNames(final PsiElement member) {
+            final Set<String> names = new HashSet<>();
+            for (final PsiVariable variable : PsiTreeUtil.findChildrenOfType(member, PsiVariable.class)) {
+                names.add(variable.getName());
+            }
+            return names;
+        }
+    }
+}
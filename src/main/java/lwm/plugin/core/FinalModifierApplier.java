@@ -0,0 +1,192 @@
+package lwm.plugin.core;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiDeclarationStatement;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiKeyword;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiModifierList;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiTypeElement;
+import com.intellij.psi.PsiVariable;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import com.intellij.util.DocumentUtil;
+import lwm.plugin.metrics.AddFinalMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量添加 final：先计算每个元素的插入位置，再对每个文档做一次批量修改并只提交一次，
+ * 避免逐个元素修改 PSI 带来的格式化、文档同步和增量重解析。
+ * 插入位置与 {@link PsiUtil#setModifierProperty} 的结果一致；
+ * 无法直接确定位置的情况（如一条语句声明多个变量）仍然走 PSI 修改
+ *
+ * @author longwm
+ */
+public final class FinalModifierApplier {
+
+    /**
+     * 变量可以使用的修饰符按规范顺序排列，final 之前的修饰符出现时插在它们后面
+     */
+    private static final List<String> MODIFIER_ORDER = Arrays.asList(
+            PsiModifier.PUBLIC, PsiModifier.PROTECTED, PsiModifier.PRIVATE, PsiModifier.STATIC,
+            PsiModifier.FINAL, PsiModifier.TRANSIENT, PsiModifier.VOLATILE);
+
+    private static final int FINAL_RANK = MODIFIER_ORDER.indexOf(PsiModifier.FINAL);
+
+    private FinalModifierApplier() {
+    }
+
+    /**
+     * 给所有元素添加 final，需要在写操作中调用
+     */
+    public static void apply(@NotNull final Collection<? extends PsiModifierListOwner> candidates) {
+        final long start = System.nanoTime();
+        final Map<PsiFile, List<PsiModifierListOwner>> byFile = new LinkedHashMap<>();
+        for (final PsiModifierListOwner candidate : candidates) {
+            if (candidate.isValid()) {
+                byFile.computeIfAbsent(candidate.getContainingFile(), k -> new ArrayList<>()).add(candidate);
+            }
+        }
+        for (final Map.Entry<PsiFile, List<PsiModifierListOwner>> entry : byFile.entrySet()) {
+            apply(entry.getKey(), entry.getValue());
+        }
+        AddFinalMetrics.WRITE_ACTION.recordSince(start);
+    }
+
+    private static void apply(final PsiFile file, final List<PsiModifierListOwner> candidates) {
+        final Project project = file.getProject();
+        final PsiDocumentManager documentManager = PsiDocumentManager.getInstance(project);
+        final Document document = documentManager.getDocument(file);
+        if (document == null) {
+            applyThroughPsi(candidates);
+            return;
+        }
+        documentManager.doPostponedOperationsAndUnblockDocument(document);
+
+        final List<TextEdit> insertions = new ArrayList<>(candidates.size());
+        final List<SmartPsiElementPointer<PsiModifierListOwner>> fallback = new ArrayList<>();
+        for (final PsiModifierListOwner candidate : candidates) {
+            final TextEdit insertion = findInsertion(candidate);
+            if (insertion != null) {
+                insertions.add(insertion);
+            } else {
+                fallback.add(SmartPointerManager.createPointer(candidate));
+            }
+        }
+
+        if (!insertions.isEmpty()) {
+            // 从后往前插入，前面的偏移不受影响
+            insertions.sort(TextEdit.FROM_END);
+            DocumentUtil.executeInBulk(document, insertions.size() > 1, () -> {
+                for (final TextEdit insertion : insertions) {
+                    document.insertString(insertion.getStartOffset(), insertion.getText());
+                }
+            });
+            AddFinalMetrics.MODIFIERS_ADDED.add(insertions.size());
+            documentManager.commitDocument(document);
+        }
+
+        final List<PsiModifierListOwner> remaining = new ArrayList<>(fallback.size());
+        for (final SmartPsiElementPointer<PsiModifierListOwner> pointer : fallback) {
+            final PsiModifierListOwner element = pointer.getElement();
+            if (element != null) {
+                remaining.add(element);
+            }
+        }
+        applyThroughPsi(remaining);
+    }
+
+    private static void applyThroughPsi(final List<PsiModifierListOwner> candidates) {
+        for (final PsiModifierListOwner candidate : candidates) {
+            if (candidate.isValid()) {
+                PsiUtil.setModifierProperty(candidate, PsiModifier.FINAL, true);
+                AddFinalMetrics.MODIFIERS_ADDED.increment();
+            }
+        }
+    }
+
+    /**
+     * 计算 final 的插入位置，无法确定时返回 null，需要在读操作中调用
+     */
+    @Nullable
+    public static TextEdit findInsertion(final PsiModifierListOwner element) {
+        final PsiModifierList modifierList = element.getModifierList();
+        if (modifierList == null || modifierList.hasExplicitModifier(PsiModifier.FINAL) || !isSingleDeclaration(element)) {
+            return null;
+        }
+
+        PsiKeyword lastBefore = null;
+        PsiKeyword firstAfter = null;
+        boolean keywordSeen = false;
+        for (PsiElement child = modifierList.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof PsiKeyword) {
+                final int rank = MODIFIER_ORDER.indexOf(child.getText());
+                if (rank < 0) {
+                    return null;
+                }
+                if (rank < FINAL_RANK) {
+                    lastBefore = (PsiKeyword) child;
+                } else if (firstAfter == null) {
+                    firstAfter = (PsiKeyword) child;
+                }
+                keywordSeen = true;
+            } else if (child instanceof PsiAnnotation && keywordSeen) {
+                // 注解和修饰符交错时交给 PSI 处理
+                return null;
+            }
+        }
+
+        if (lastBefore != null) {
+            return insertion(lastBefore.getTextRange().getEndOffset(), " " + PsiModifier.FINAL);
+        }
+        if (firstAfter != null) {
+            return insertion(firstAfter.getTextRange().getStartOffset(), PsiModifier.FINAL + " ");
+        }
+        // 没有其他修饰符时插在类型之前（在注解之后）
+        final PsiTypeElement typeElement = element instanceof PsiVariable ? ((PsiVariable) element).getTypeElement() : null;
+        if (typeElement == null) {
+            return null;
+        }
+        return insertion(typeElement.getTextRange().getStartOffset(), PsiModifier.FINAL + " ");
+    }
+
+    /**
+     * 一条声明只声明了这一个变量；{@code int a, b;} 这样的声明在 PSI 修改时会被拆开，不能直接插入
+     */
+    private static boolean isSingleDeclaration(final PsiModifierListOwner element) {
+        if (element instanceof PsiLocalVariable) {
+            final PsiElement parent = element.getParent();
+            return parent instanceof PsiDeclarationStatement && ((PsiDeclarationStatement) parent).getDeclaredElements().length == 1;
+        }
+        if (element instanceof PsiField) {
+            final PsiField field = (PsiField) element;
+            final PsiTypeElement typeElement = field.getTypeElement();
+            final PsiElement last = PsiTreeUtil.getDeepestLast(field);
+            return typeElement != null && typeElement.getParent() == field
+                    && PsiUtil.isJavaToken(last, JavaTokenType.SEMICOLON);
+        }
+        return true;
+    }
+
+    private static TextEdit insertion(final int offset, final String text) {
+        return new TextEdit(offset, offset, text);
+    }
+}
@@ -0,0 +1,395 @@
+package lwm.plugin.core;
+
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassInitializer;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiEnumConstant;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIfStatement;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiLambdaExpression;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiLoopStatement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiModifierList;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiParameterList;
+import com.intellij.psi.PsiRecordComponent;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiStatement;
+import com.intellij.psi.PsiVariable;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import lwm.plugin.metrics.AddFinalMetrics;
+import lwm.plugin.settings.AddFinalPolicy;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 添加 final 修饰符的公共逻辑，供意图和批量操作共用
+ *
+ * @author longwm
+ */
+public final class FinalModifierSupport {
+
+    private FinalModifierSupport() {
+    }
+
+    /**
+     * 处理整个类：先只读地收集候选元素，再统一应用
+     */
+    public static void processClass(@NotNull final PsiClass psiClass) {
+        final List<PsiModifierListOwner> candidates = new ArrayList<>();
+        collectCandidates(psiClass, candidates::add);
+        applyFinal(candidates);
+    }
+
+    /**
+     * 处理单个方法：先只读地收集候选元素，再统一应用
+     */
+    public static void processMethod(@NotNull final PsiMethod method) {
+        final List<PsiModifierListOwner> candidates = new ArrayList<>();
+        collectCandidates(method, candidates::add);
+        applyFinal(candidates);
+    }
+
+    /**
+     * 只读地收集文件中所有可以添加 final 的元素
+     */
+    public static void collectCandidates(@NotNull final PsiFile file, @NotNull final Consumer<? super PsiModifierListOwner> consumer) {
+        if (file instanceof PsiJavaFile) {
+            visit(file, new CandidateVisitor(consumer));
+        }
+    }
+
+    /**
+     * 以指定模式只读地收集文件中所有可以添加 final 的元素，不应用设置中的策略，结果只取决于文件内容。
+     * 供索引使用，不计入 {@link AddFinalMetrics}：索引在后台成批建立，计入后分析指标反映的不再是编辑器中的耗时
+     */
+    public static void collectCandidates(@NotNull final PsiFile file, @NotNull final AnalysisMode mode,
+                                         @NotNull final Consumer<? super PsiModifierListOwner> consumer) {
+        if (file instanceof PsiJavaFile) {
+            visit(file, new CandidateVisitor(consumer, null, mode, AddFinalPolicy.ALLOW_ALL, false));
+        }
+    }
+
+    /**
+     * 只读地收集文件中声明在指定范围内、可以添加 final 的元素，只分析覆盖这些范围的 PSI
+     */
+    public static void collectCandidates(@NotNull final PsiFile file, @NotNull final List<TextRange> ranges,
+                                         @NotNull final Consumer<? super PsiModifierListOwner> consumer) {
+        if (!(file instanceof PsiJavaFile)) {
+            return;
+        }
+        final Set<PsiModifierListOwner> seen = new HashSet<>();
+        final Consumer<PsiModifierListOwner> uniqueConsumer = element -> {
+            if (seen.add(element)) {
+                consumer.accept(element);
+            }
+        };
+        for (final TextRange range : ranges) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            final PsiElement start = file.findElementAt(range.getStartOffset());
+            final PsiElement end = file.findElementAt(range.getEndOffset() - 1);
+            final PsiElement root = start == null || end == null ? file : PsiTreeUtil.findCommonParent(start, end);
+            visit(root == null ? file : root, new CandidateVisitor(uniqueConsumer, range));
+        }
+    }
+
+    /**
+     * 只读地收集类中所有可以添加 final 的元素，包括内部类、匿名类、初始化块和 lambda 中的变量
+     */
+    public static void collectCandidates(@NotNull final PsiClass psiClass, @NotNull final Consumer<? super PsiModifierListOwner> consumer) {
+        visit(psiClass, new CandidateVisitor(consumer));
+    }
+
+    /**
+     * 只读地收集方法参数、局部变量以及方法体内 lambda、匿名类中可以添加 final 的元素
+     */
+    public static void collectCandidates(@NotNull final PsiMethod method, @NotNull final Consumer<? super PsiModifierListOwner> consumer) {
+        visit(method, new CandidateVisitor(consumer));
+    }
+
+    private static void visit(final PsiElement root, final CandidateVisitor visitor) {
+        if (!visitor.getPolicy().acceptsFile(root.getContainingFile())) {
+            return;
+        }
+        if (!visitor.isRecordingMetrics()) {
+            root.accept(visitor);
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            root.accept(visitor);
+        } finally {
+            AddFinalMetrics.ANALYSIS.recordSince(start);
+        }
+    }
+
+    /**
+     * 非 private 字段是否在所在顶层类之外被写入，这样的字段添加 final 会导致其他文件无法编译。
+     * 搜索范围可能是整个项目，只在修改前的收集阶段、在后台读操作中调用，
+     * 编辑器中的可用性判断和检查只使用顶层类内的写入
+     */
+    public static boolean isWrittenElsewhere(@NotNull final PsiModifierListOwner element) {
+        return element instanceof PsiField && !element.hasModifierProperty(PsiModifier.PRIVATE)
+                && VariableWriteAnalysis.isWrittenOutsideTopLevelClass((PsiField) element);
+    }
+
+    /**
+     * 去掉在其他文件中被写入的字段，只能在后台读操作中调用
+     */
+    @NotNull
+    public static <T extends PsiModifierListOwner> List<T> withoutWrittenElsewhere(@NotNull final Collection<T> candidates) {
+        final List<T> result = new ArrayList<>(candidates.size());
+        for (final T candidate : candidates) {
+            if (!isWrittenElsewhere(candidate)) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 给已确认可以添加 final 的元素添加修饰符，每个文件只做一次批量文档修改，需要在写操作中调用
+     */
+    public static void applyFinal(@NotNull final Collection<? extends PsiModifierListOwner> candidates) {
+        FinalModifierApplier.apply(candidates);
+    }
+
+    public static void addFinalModifierIfNotPresent(final PsiModifierListOwner element) {
+        final long analysisStart = System.nanoTime();
+        final boolean needsFinal = needsFinal(element);
+        AddFinalMetrics.ANALYSIS.recordSince(analysisStart);
+        if (needsFinal) {
+            final long writeStart = System.nanoTime();
+            PsiUtil.setModifierProperty(element, PsiModifier.FINAL, true);
+            AddFinalMetrics.WRITE_ACTION.recordSince(writeStart);
+            AddFinalMetrics.MODIFIERS_ADDED.increment();
+        }
+    }
+
+    /**
+     * 判断元素当前缺少 final 且可以添加
+     */
+    public static boolean needsFinal(final PsiModifierListOwner element) {
+        return needsFinal(element, AnalysisMode.RESOLVE);
+    }
+
+    /**
+     * 以指定模式判断元素当前缺少 final 且可以添加，并且设置中的策略允许处理它
+     */
+    public static boolean needsFinal(final PsiModifierListOwner element, @NotNull final AnalysisMode mode) {
+        if (element == null) {
+            return false;
+        }
+        final AddFinalPolicy policy = AddFinalPolicy.current();
+        return policy.accepts(element) && policy.acceptsFile(element.getContainingFile()) && isMissingFinal(element, mode);
+    }
+
+    /**
+     * 只按策略的元素级规则判断，文件级规则由调用方对整个文件预先判断一次
+     */
+    public static boolean needsFinal(final PsiModifierListOwner element, @NotNull final AddFinalPolicy policy) {
+        return element != null && policy.accepts(element) && isMissingFinal(element, AnalysisMode.RESOLVE);
+    }
+
+    /**
+     * 不考虑策略，只判断元素当前缺少 final 且可以添加
+     */
+    static boolean isMissingFinal(@NotNull final PsiModifierListOwner element, @NotNull final AnalysisMode mode) {
+        final PsiModifierList modifierList = element.getModifierList();
+        return modifierList != null && !modifierList.hasExplicitModifier(PsiModifier.FINAL) && canAddFinal(element, mode);
+    }
+
+    /**
+     * 判断是否可以添加 final 修饰符
+     */
+    public static boolean canAddFinal(final PsiModifierListOwner element) {
+        return canAddFinal(element, AnalysisMode.RESOLVE);
+    }
+
+    /**
+     * 以指定模式判断是否可以添加 final 修饰符
+     */
+    public static boolean canAddFinal(final PsiModifierListOwner element, @NotNull final AnalysisMode mode) {
+        final PsiModifierList modifierList = element.getModifierList();
+        if (modifierList == null) {
+            return false;
+        }
+
+        // 记录组件和记录的字段、枚举常量、接口字段都是隐式 final
+        if (element instanceof PsiRecordComponent || element instanceof PsiEnumConstant) {
+            return false;
+        }
+
+        // 对于字段，需要更严格的检查
+        if (element instanceof PsiField) {
+            final PsiField field = (PsiField) element;
+            final PsiClass fieldClass = field.getContainingClass();
+            if (fieldClass != null && (fieldClass.isInterface()
+                    || fieldClass.isRecord() && !modifierList.hasExplicitModifier(PsiModifier.STATIC))) {
+                return false;
+            }
+            // 非 private 字段可能在其他类或文件中被写入。这里只检查顶层类内的写入，保证编辑器中的判断足够快，
+            // 跨文件的搜索由修改前的 isWrittenElsewhere 在后台完成；语法模式无法搜索，直接跳过
+            if (mode == AnalysisMode.SYNTACTIC && !modifierList.hasModifierProperty(PsiModifier.PRIVATE)) {
+                return false;
+            }
+            final VariableWriteAnalysis writeAnalysis = VariableWriteAnalysis.forVariable(field);
+            final List<PsiReferenceExpression> writes = writeAnalysis == null ? Collections.emptyList() : writeAnalysis.getWrites(field, mode);
+            // 有初始化器的字段不能再被赋值
+            if (field.getInitializer() != null && !writes.isEmpty()) {
+                return false;
+            }
+            // 如果字段没有初始化器，需要检查是否在构造器中被初始化
+            if (field.getInitializer() == null) {
+                // 如果是静态字段但没有初始化器，不能添加 final
+                if (modifierList.hasExplicitModifier(PsiModifier.STATIC)) {
+                    return false;
+                }
+                // 对于实例字段，检查是否在每个构造器中都被初始化，且只在构造过程中赋值一次
+                if (fieldClass == null) {
+                    return false;
+                }
+                final FieldInitializationAnalysis analysis = FieldInitializationAnalysis.of(fieldClass, mode);
+                if (!analysis.isDefinitelyAssigned(field) || !isAssignedOnlyOnceDuringConstruction(fieldClass, analysis, writes)) {
+                    return false;
+                }
+            }
+        }
+
+        // 没有声明类型的 lambda 参数不能添加修饰符
+        if (element instanceof PsiParameter && ((PsiParameter) element).getTypeElement() == null) {
+            return false;
+        }
+
+        // 局部变量和参数不能在声明后被重新赋值
+        if (element instanceof PsiLocalVariable || element instanceof PsiParameter) {
+            final PsiVariable variable = (PsiVariable) element;
+            final VariableWriteAnalysis writeAnalysis = VariableWriteAnalysis.forVariable(variable);
+            if (writeAnalysis != null && !isEffectivelyFinal(variable, writeAnalysis.getWrites(variable, mode))) {
+                return false;
+            }
+        }
+
+        // 抽象方法的参数不能添加 final（虽然抽象方法本身没有方法体，但为了安全起见）
+        if (element instanceof PsiParameter) {
+            final PsiParameter parameter = (PsiParameter) element;
+            final PsiElement parent = parameter.getParent();
+            if (parent instanceof PsiParameterList) {
+                final PsiElement grandParent = parent.getParent();
+                if (grandParent instanceof PsiMethod) {
+                    final PsiMethod method = (PsiMethod) grandParent;
+                    return !method.hasModifierProperty(PsiModifier.ABSTRACT);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 局部变量或参数是否只在声明处（或没有初始化器时的唯一一次赋值处）被赋值
+     */
+    private static boolean isEffectivelyFinal(final PsiVariable variable, final List<PsiReferenceExpression> writes) {
+        if (writes.isEmpty()) {
+            return true;
+        }
+        if (variable.hasInitializer() || !(variable instanceof PsiLocalVariable) || writes.size() > 1) {
+            return false;
+        }
+        // 没有初始化器的局部变量允许一次普通赋值，但不能处在循环、lambda 或内部类中
+        final PsiReferenceExpression write = writes.get(0);
+        if (!isPlainAssignment(write)) {
+            return false;
+        }
+        final PsiElement declarationScope = variable.getParent() == null ? null : variable.getParent().getParent();
+        if (declarationScope instanceof PsiLoopStatement) {
+            return false;
+        }
+        for (PsiElement parent = write.getParent(); parent != null && parent != declarationScope; parent = parent.getParent()) {
+            if (parent instanceof PsiLoopStatement || parent instanceof PsiLambdaExpression || parent instanceof PsiClass) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 无初始化器的实例字段只能在构造器或实例初始化块中直接赋值，且每条构造路径上只赋值一次
+     */
+    private static boolean isAssignedOnlyOnceDuringConstruction(final PsiClass containingClass, final FieldInitializationAnalysis analysis,
+                                                                final List<PsiReferenceExpression> writes) {
+        final Map<PsiElement, List<PsiReferenceExpression>> writesByMember = new HashMap<>();
+        boolean writtenInInitializer = false;
+        for (final PsiReferenceExpression write : writes) {
+            if (!isPlainAssignment(write)) {
+                return false;
+            }
+            final PsiElement member = PsiTreeUtil.getParentOfType(write, PsiMethod.class, PsiClassInitializer.class, PsiLambdaExpression.class, PsiClass.class);
+            if (member instanceof PsiMethod && ((PsiMethod) member).isConstructor()
+                    && containingClass.equals(((PsiMethod) member).getContainingClass())) {
+                // 委托给 this(...) 的构造器中被委托的构造器已经赋过值
+                if (analysis.isDelegating((PsiMethod) member)) {
+                    return false;
+                }
+            } else if (member instanceof PsiClassInitializer && !((PsiClassInitializer) member).hasModifierProperty(PsiModifier.STATIC)
+                    && containingClass.equals(((PsiClassInitializer) member).getContainingClass())) {
+                writtenInInitializer = true;
+            } else {
+                return false;
+            }
+            // 同一个构造器或初始化块中的多次赋值必须处在互斥的分支中
+            final List<PsiReferenceExpression> memberWrites = writesByMember.computeIfAbsent(member, k -> new ArrayList<>(1));
+            for (final PsiReferenceExpression previous : memberWrites) {
+                if (!areInExclusiveBranches(previous, write)) {
+                    return false;
+                }
+            }
+            memberWrites.add(write);
+        }
+        // 实例初始化块会在每个构造器之前执行，与其他赋值同时存在就是重复赋值
+        return !(writtenInInitializer && writesByMember.size() > 1);
+    }
+
+    /**
+     * 两处赋值分别处在同一个 if 语句的 then 和 else 分支中，任何执行路径上最多执行其中一个
+     */
+    private static boolean areInExclusiveBranches(final PsiElement first, final PsiElement second) {
+        final PsiElement common = PsiTreeUtil.findCommonParent(first, second);
+        if (!(common instanceof PsiIfStatement)) {
+            return false;
+        }
+        final PsiStatement thenBranch = ((PsiIfStatement) common).getThenBranch();
+        final PsiStatement elseBranch = ((PsiIfStatement) common).getElseBranch();
+        if (thenBranch == null || elseBranch == null) {
+            return false;
+        }
+        return PsiTreeUtil.isAncestor(thenBranch, first, false) && PsiTreeUtil.isAncestor(elseBranch, second, false)
+                || PsiTreeUtil.isAncestor(elseBranch, first, false) && PsiTreeUtil.isAncestor(thenBranch, second, false);
+    }
+
+    private static boolean isPlainAssignment(final PsiReferenceExpression write) {
+        final PsiElement parent = PsiUtil.skipParenthesizedExprUp(write.getParent());
+        return parent instanceof PsiAssignmentExpression
+                && ((PsiAssignmentExpression) parent).getOperationTokenType() == JavaTokenType.EQ;
+    }
+}
@@ -0,0 +1,58 @@
+package lwm.plugin.core;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiModifierListOwner;
+import lwm.plugin.settings.AddFinalPolicy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Java 文件：给字段、参数和局部变量添加 final
+ *
+ * @author longwm
+ */
+public class JavaCandidateProvider implements CandidateProvider {
+
+    @Override
+    public boolean isApplicable(@NotNull final VirtualFile file) {
+        return file.getFileType() == JavaFileType.INSTANCE;
+    }
+
+    @Override
+    public void collectCandidates(@NotNull final PsiFile file, @NotNull final Consumer<? super PsiElement> consumer) {
+        // 批量和无界面模式都在后台收集，可以搜索其他文件中对字段的写入
+        FinalModifierSupport.collectCandidates(file, element -> {
+            if (!FinalModifierSupport.isWrittenElsewhere(element)) {
+                consumer.accept(element);
+            }
+        });
+    }
+
+    @Override
+    public boolean needsChange(@Nullable final PsiElement element, @NotNull final AddFinalPolicy policy) {
+        return element instanceof PsiModifierListOwner && FinalModifierSupport.needsFinal((PsiModifierListOwner) element, policy);
+    }
+
+    @Nullable
+    @Override
+    public TextEdit findEdit(@NotNull final PsiElement element) {
+        return element instanceof PsiModifierListOwner ? FinalModifierApplier.findInsertion((PsiModifierListOwner) element) : null;
+    }
+
+    @Override
+    public void apply(@NotNull final Collection<? extends PsiElement> elements) {
+        final List<PsiModifierListOwner> owners = new ArrayList<>(elements.size());
+        for (final PsiElement element : elements) {
+            owners.add((PsiModifierListOwner) element);
+        }
+        FinalModifierSupport.applyFinal(owners);
+    }
+}
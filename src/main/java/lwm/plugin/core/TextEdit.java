@@ -0,0 +1,41 @@
+package lwm.plugin.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Comparator;
+
+/**
+ * 对文档的一处文本替换，在读操作中根据 PSI 计算，之后不依赖 PSI 直接修改文档
+ *
+ * @author longwm
+ */
+public final class TextEdit {
+
+    /**
+     * 按起始位置从后往前排序，依次应用时前面的偏移不受影响
+     */
+    public static final Comparator<TextEdit> FROM_END = Comparator.comparingInt(TextEdit::getStartOffset).reversed();
+
+    private final int startOffset;
+    private final int endOffset;
+    private final String text;
+
+    public TextEdit(final int startOffset, final int endOffset, @NotNull final String text) {
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.text = text;
+    }
+
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    @NotNull
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,182 @@
+package lwm.plugin.core;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.JavaRecursiveElementWalkingVisitor;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiPostfixExpression;
+import com.intellij.psi.PsiPrefixExpression;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiVariable;
+import com.intellij.psi.search.LocalSearchScope;
+import com.intellij.psi.search.SearchScope;
+import com.intellij.psi.search.searches.ReferencesSearch;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.util.PsiUtil;
+import lwm.plugin.metrics.AddFinalMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 方法或类中所有写操作（赋值、复合赋值、自增自减）的索引，按被写入的名字分组。
+ * 结果缓存在方法或类上，所在文件的 PSI 修改计数变化后才重新计算，
+ * 未修改代码上的重复查询只需要一次哈希查找，且只解析同名的引用
+ *
+ * @author longwm
+ */
+public final class VariableWriteAnalysis {
+
+    private final Map<String, List<PsiReferenceExpression>> writesByName;
+
+    private VariableWriteAnalysis(final Map<String, List<PsiReferenceExpression>> writesByName) {
+        this.writesByName = writesByName;
+    }
+
+    /**
+     * 获取变量所在作用域的写操作索引：局部变量和参数使用所在方法，字段使用顶层类
+     */
+    @Nullable
+    public static VariableWriteAnalysis forVariable(@NotNull final PsiVariable variable) {
+        final PsiElement scope = variable instanceof PsiField
+                ? PsiUtil.getTopLevelClass(variable)
+                : PsiTreeUtil.getParentOfType(variable, PsiMethod.class, PsiClass.class);
+        return scope == null ? null : of(scope);
+    }
+
+    /**
+     * 获取方法或类的写操作索引
+     */
+    @NotNull
+    public static VariableWriteAnalysis of(@NotNull final PsiElement scope) {
+        return CachedValuesManager.getCachedValue(scope,
+                () -> CachedValueProvider.Result.create(analyze(scope), scope));
+    }
+
+    /**
+     * 字段是否在所在顶层类之外被写入。private 字段只能在顶层类内访问，直接返回 false；
+     * 其他字段在使用范围内搜索引用，可能遍历整个项目，只能在后台读操作中调用，结果不缓存。
+     * 非 Java 的引用无法判断读写，按写入处理
+     */
+    public static boolean isWrittenOutsideTopLevelClass(@NotNull final PsiField field) {
+        final SearchScope useScope = field.getUseScope();
+        return !(useScope instanceof LocalSearchScope) && searchWritesOutsideTopLevelClass(field, useScope);
+    }
+
+    private static boolean searchWritesOutsideTopLevelClass(final PsiField field, final SearchScope useScope) {
+        final PsiClass topLevelClass = PsiUtil.getTopLevelClass(field);
+        return !ReferencesSearch.search(field, useScope).forEach((PsiReference reference) -> {
+            ProgressManager.checkCanceled();
+            final PsiElement element = reference.getElement();
+            if (topLevelClass != null && PsiTreeUtil.isAncestor(topLevelClass, element, false)) {
+                return true;
+            }
+            return element instanceof PsiExpression && !PsiUtil.isAccessedForWriting((PsiExpression) element);
+        });
+    }
+
+    @NotNull
+    static VariableWriteAnalysis analyze(@NotNull final PsiElement scope) {
+        final Map<String, List<PsiReferenceExpression>> writesByName = new HashMap<>();
+        scope.accept(new JavaRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitAssignmentExpression(final PsiAssignmentExpression expression) {
+                super.visitAssignmentExpression(expression);
+                record(expression.getLExpression());
+            }
+
+            @Override
+            public void visitPrefixExpression(final PsiPrefixExpression expression) {
+                super.visitPrefixExpression(expression);
+                if (isIncrementOrDecrement(expression.getOperationTokenType())) {
+                    record(expression.getOperand());
+                }
+            }
+
+            @Override
+            public void visitPostfixExpression(final PsiPostfixExpression expression) {
+                super.visitPostfixExpression(expression);
+                if (isIncrementOrDecrement(expression.getOperationTokenType())) {
+                    record(expression.getOperand());
+                }
+            }
+
+            private void record(final PsiExpression target) {
+                ProgressManager.checkCanceled();
+                final PsiExpression operand = PsiUtil.skipParenthesizedExprDown(target);
+                if (operand instanceof PsiReferenceExpression) {
+                    final PsiReferenceExpression ref = (PsiReferenceExpression) operand;
+                    final String name = ref.getReferenceName();
+                    if (name != null) {
+                        writesByName.computeIfAbsent(name, k -> new ArrayList<>(1)).add(ref);
+                    }
+                }
+            }
+        });
+        return new VariableWriteAnalysis(writesByName);
+    }
+
+    private static boolean isIncrementOrDecrement(final IElementType tokenType) {
+        return tokenType == JavaTokenType.PLUSPLUS || tokenType == JavaTokenType.MINUSMINUS;
+    }
+
+    /**
+     * 变量在作用域内是否被写入过（不含声明时的初始化）
+     */
+    public boolean isWritten(@NotNull final PsiVariable variable) {
+        return !getWrites(variable, AnalysisMode.RESOLVE).isEmpty();
+    }
+
+    /**
+     * 作用域内写入该变量的所有引用；{@link AnalysisMode#SYNTACTIC} 模式下同名写入都算，
+     * 只是局部变量和参数不会出现带限定符的写入
+     */
+    @NotNull
+    public List<PsiReferenceExpression> getWrites(@NotNull final PsiVariable variable, @NotNull final AnalysisMode mode) {
+        final List<PsiReferenceExpression> candidates = writesByName.get(variable.getName());
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        if (mode == AnalysisMode.SYNTACTIC) {
+            return variable instanceof PsiField ? candidates : unqualified(candidates);
+        }
+        List<PsiReferenceExpression> writes = null;
+        for (final PsiReferenceExpression ref : candidates) {
+            AddFinalMetrics.RESOLVES.increment();
+            if (ref.isReferenceTo(variable)) {
+                if (writes == null) {
+                    writes = new ArrayList<>(candidates.size());
+                }
+                writes.add(ref);
+            }
+        }
+        return writes == null ? Collections.emptyList() : writes;
+    }
+
+    private static List<PsiReferenceExpression> unqualified(final List<PsiReferenceExpression> candidates) {
+        List<PsiReferenceExpression> writes = null;
+        for (final PsiReferenceExpression ref : candidates) {
+            if (ref.getQualifierExpression() == null) {
+                if (writes == null) {
+                    writes = new ArrayList<>(candidates.size());
+                }
+                writes.add(ref);
+            }
+        }
+        return writes == null ? Collections.emptyList() : writes;
+    }
+}
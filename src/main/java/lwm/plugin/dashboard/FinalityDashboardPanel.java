@@ -0,0 +1,181 @@
+package lwm.plugin.dashboard;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.ActionToolbar;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DefaultActionGroup;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbAwareAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.ui.SimpleToolWindowPanel;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.treeStructure.Tree;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import lwm.plugin.index.FinalityIndex;
+import lwm.plugin.settings.AddFinalPolicy;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按模块、包、文件汇总可以添加 final 的变量数量，数据直接读取 {@link FinalityIndex}，
+ * 不需要重新分析文件；双击文件跳转到第一个候选位置
+ *
+ * @author longwm
+ */
+class FinalityDashboardPanel extends SimpleToolWindowPanel implements Disposable {
+
+    private static final String NO_MODULE = "<no module>";
+    private static final String DEFAULT_PACKAGE = "<default package>";
+
+    private final Project project;
+    private final DefaultTreeModel model = new DefaultTreeModel(new DefaultMutableTreeNode(new Entry("Loading...", 0, null, 0)));
+    private final Tree tree = new Tree(model);
+
+    FinalityDashboardPanel(@NotNull final Project project) {
+        super(true, true);
+        this.project = project;
+
+        final DefaultActionGroup group = new DefaultActionGroup();
+        group.add(new DumbAwareAction("Refresh", "Reload candidate counts from the index", AllIcons.Actions.Refresh) {
+            @Override
+            public void actionPerformed(@NotNull final AnActionEvent e) {
+                refresh();
+            }
+        });
+        final ActionToolbar toolbar = ActionManager.getInstance().createActionToolbar("FinalCandidates", group, false);
+        toolbar.setTargetComponent(tree);
+        setToolbar(toolbar.getComponent());
+
+        tree.setRootVisible(true);
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull final MouseEvent event) {
+                return navigate(tree.getSelectionPath());
+            }
+        }.installOn(tree);
+        setContent(ScrollPaneFactory.createScrollPane(tree));
+    }
+
+    /**
+     * 在后台读操作中从索引重建统计树，索引就绪（智能模式）后执行
+     */
+    void refresh() {
+        ReadAction.nonBlocking(this::buildTree)
+                .inSmartMode(project)
+                .expireWith(this)
+                .finishOnUiThread(ModalityState.defaultModalityState(), root -> {
+                    model.setRoot(root);
+                    tree.expandRow(0);
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    private DefaultMutableTreeNode buildTree() {
+        final ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(project);
+        final AddFinalPolicy policy = AddFinalPolicy.current();
+        final Map<String, Map<String, List<Entry>>> byModule = new HashMap<>();
+        for (final VirtualFile file : FileTypeIndex.getFiles(JavaFileType.INSTANCE, GlobalSearchScope.projectScope(project))) {
+            ProgressManager.checkCanceled();
+            // 索引不依赖设置，这里只能应用文件级规则
+            if (!policy.acceptsFile(project, file)) {
+                continue;
+            }
+            final int[] offsets = FinalityIndex.getOffsets(project, file);
+            if (offsets.length == 0) {
+                continue;
+            }
+            final Module module = fileIndex.getModuleForFile(file);
+            final VirtualFile directory = file.getParent();
+            final String packageName = directory == null ? null : fileIndex.getPackageNameByDirectory(directory);
+            byModule.computeIfAbsent(module == null ? NO_MODULE : module.getName(), k -> new HashMap<>())
+                    .computeIfAbsent(packageName == null || packageName.isEmpty() ? DEFAULT_PACKAGE : packageName, k -> new ArrayList<>())
+                    .add(new Entry(file.getName(), offsets.length, file, offsets[0]));
+        }
+
+        final List<DefaultMutableTreeNode> moduleNodes = new ArrayList<>(byModule.size());
+        for (final Map.Entry<String, Map<String, List<Entry>>> module : byModule.entrySet()) {
+            final List<DefaultMutableTreeNode> packageNodes = new ArrayList<>(module.getValue().size());
+            for (final Map.Entry<String, List<Entry>> packageEntry : module.getValue().entrySet()) {
+                final List<DefaultMutableTreeNode> fileNodes = new ArrayList<>(packageEntry.getValue().size());
+                for (final Entry fileEntry : packageEntry.getValue()) {
+                    fileNodes.add(new DefaultMutableTreeNode(fileEntry, false));
+                }
+                packageNodes.add(group(packageEntry.getKey(), fileNodes));
+            }
+            moduleNodes.add(group(module.getKey(), packageNodes));
+        }
+        return group("Project", moduleNodes);
+    }
+
+    /**
+     * 子节点按数量从多到少排列，热点排在最前
+     */
+    private static DefaultMutableTreeNode group(final String name, final List<DefaultMutableTreeNode> children) {
+        children.sort(Comparator.comparingInt((DefaultMutableTreeNode node) -> ((Entry) node.getUserObject()).count).reversed());
+        int count = 0;
+        final DefaultMutableTreeNode node = new DefaultMutableTreeNode();
+        for (final DefaultMutableTreeNode child : children) {
+            count += ((Entry) child.getUserObject()).count;
+            node.add(child);
+        }
+        node.setUserObject(new Entry(name, count, null, 0));
+        return node;
+    }
+
+    private boolean navigate(final TreePath path) {
+        if (path == null) {
+            return false;
+        }
+        final Object userObject = ((DefaultMutableTreeNode) path.getLastPathComponent()).getUserObject();
+        if (!(userObject instanceof Entry) || ((Entry) userObject).file == null || !((Entry) userObject).file.isValid()) {
+            return false;
+        }
+        final Entry entry = (Entry) userObject;
+        new OpenFileDescriptor(project, entry.file, entry.offset).navigate(true);
+        return true;
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final VirtualFile file;
+        private final int offset;
+        private final int count;
+
+        Entry(final String name, final int count, final VirtualFile file, final int offset) {
+            this.name = name;
+            this.count = count;
+            this.file = file;
+            this.offset = offset;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + count + ")";
+        }
+    }
+}
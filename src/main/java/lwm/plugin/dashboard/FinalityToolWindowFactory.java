@@ -0,0 +1,26 @@
+package lwm.plugin.dashboard;
+
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 候选统计工具窗口
+ *
+ * @author longwm
+ */
+public class FinalityToolWindowFactory implements ToolWindowFactory, DumbAware {
+
+    @Override
+    public void createToolWindowContent(@NotNull final Project project, @NotNull final ToolWindow toolWindow) {
+        final FinalityDashboardPanel panel = new FinalityDashboardPanel(project);
+        final Content content = ContentFactory.SERVICE.getInstance().createContent(panel, null, false);
+        content.setDisposer(panel);
+        toolWindow.getContentManager().addContent(content);
+        panel.refresh();
+    }
+}
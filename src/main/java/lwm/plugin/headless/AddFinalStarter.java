@@ -0,0 +1,114 @@
+package lwm.plugin.headless;
+
+import com.intellij.ide.impl.ProjectUtil;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ApplicationStarter;
+import com.intellij.openapi.application.ex.ApplicationEx;
+import com.intellij.openapi.application.ex.ApplicationManagerEx;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ex.ProjectManagerEx;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * 命令行无界面模式，用于 CI：
+ * <pre>
+ * idea addFinal &lt;projectPath&gt; [--scope &lt;module name | directory&gt;] [--verify]
+ * </pre>
+ * 默认直接修改文件；{@code --verify} 只报告缺少的 final，存在时以非零状态退出
+ *
+ * @author longwm
+ */
+public class AddFinalStarter implements ApplicationStarter {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_MISSING_FINAL = 1;
+    static final int EXIT_ERROR = 2;
+
+    private static final String USAGE = "Usage: addFinal <projectPath> [--scope <module name | directory>] [--verify]";
+
+    @Override
+    public String getCommandName() {
+        return "addFinal";
+    }
+
+    @Override
+    public boolean isHeadless() {
+        return true;
+    }
+
+    @Override
+    public void main(@NotNull final List<String> args) {
+        // 分析和写操作都需要 EDT 空闲，在后台线程执行，完成后正常退出应用
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            int exitCode = EXIT_ERROR;
+            try {
+                exitCode = run(args, System.out);
+            } catch (final Throwable e) {
+                e.printStackTrace(System.err);
+            } finally {
+                final int status = exitCode;
+                ApplicationManager.getApplication().invokeLater(() -> ApplicationManagerEx.getApplicationEx()
+                        .exit(ApplicationEx.FORCE_EXIT | ApplicationEx.EXIT_CONFIRMED, status));
+            }
+        });
+    }
+
+    private static int run(final List<String> args, final PrintStream out) {
+        Path projectPath = null;
+        String scope = null;
+        boolean verify = false;
+        // args.get(0) 是命令名
+        for (int i = 1; i < args.size(); i++) {
+            final String arg = args.get(i);
+            if ("--verify".equals(arg)) {
+                verify = true;
+            } else if ("--scope".equals(arg) && i + 1 < args.size()) {
+                scope = args.get(++i);
+            } else if (projectPath == null && !arg.startsWith("--")) {
+                projectPath = Paths.get(arg).toAbsolutePath().normalize();
+            } else {
+                System.err.println(USAGE);
+                return EXIT_ERROR;
+            }
+        }
+        if (projectPath == null || !Files.isDirectory(projectPath)) {
+            System.err.println(USAGE);
+            return EXIT_ERROR;
+        }
+
+        final Project project = ProjectUtil.openOrImport(projectPath, null, false);
+        if (project == null) {
+            System.err.println("Cannot open project " + projectPath);
+            return EXIT_ERROR;
+        }
+
+        try {
+            final HeadlessAddFinalRunner runner = new HeadlessAddFinalRunner(project, verify, out);
+            final int missing;
+            try {
+                missing = runner.run(scope);
+            } catch (final IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.err.println(USAGE);
+                return EXIT_ERROR;
+            }
+            ApplicationManager.getApplication().invokeAndWait(() -> FileDocumentManager.getInstance().saveAllDocuments());
+
+            if (verify) {
+                out.println(missing + " variable(s) can be final");
+                return missing == 0 ? EXIT_OK : EXIT_MISSING_FINAL;
+            }
+            out.println("Added final to " + runner.getWritten() + " variable(s)");
+            return EXIT_OK;
+        } finally {
+            ApplicationManager.getApplication().invokeAndWait(() -> ProjectManagerEx.getInstanceEx().forceCloseProject(project));
+        }
+    }
+}
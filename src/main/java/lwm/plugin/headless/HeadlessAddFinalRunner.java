@@ -0,0 +1,172 @@
+package lwm.plugin.headless;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import lwm.plugin.batch.ParallelCandidateCollector;
+import lwm.plugin.core.CandidateProvider;
+import lwm.plugin.settings.AddFinalPolicy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 无界面模式下与 IDE 中的批量操作一样，用 {@link ParallelCandidateCollector} 在有界线程池上并行分析文件，
+ * 每个文件分析完立即输出结果、应用并释放，内存占用与项目大小无关；
+ * 与 IDE 中的批量操作一样按文件选择 {@link CandidateProvider}，Java 和 Kotlin 文件都会处理
+ *
+ * @author longwm
+ */
+class HeadlessAddFinalRunner {
+
+    private final Project project;
+    private final boolean verify;
+    private final PrintStream out;
+    private final AtomicInteger missing = new AtomicInteger();
+    private final AtomicInteger written = new AtomicInteger();
+
+    HeadlessAddFinalRunner(@NotNull final Project project, final boolean verify, @NotNull final PrintStream out) {
+        this.project = project;
+        this.verify = verify;
+        this.out = out;
+    }
+
+    /**
+     * 处理范围内所有有 {@link CandidateProvider} 的文件，返回缺少 final（或可改为 val）的变量数
+     *
+     * @throws IllegalArgumentException {@code scope} 既不是模块名也不是存在的目录
+     */
+    int run(@Nullable final String scope) {
+        final VirtualFile directory = findScopeDirectory(scope);
+        final List<VirtualFile> files = ReadAction.compute(() -> {
+            final List<VirtualFile> result = new ArrayList<>();
+            for (final Module module : selectModules(scope)) {
+                collectFiles(module, directory, result);
+            }
+            return result;
+        });
+        new ParallelCandidateCollector(project).stream(files, new EmptyProgressIndicator(), this::processFile);
+        return missing.get();
+    }
+
+    /**
+     * 实际写入的修饰符数，应用前重新检查后不再需要修改的元素不计入
+     */
+    int getWritten() {
+        return written.get();
+    }
+
+    private List<Module> selectModules(@Nullable final String scope) {
+        final ModuleManager moduleManager = ModuleManager.getInstance(project);
+        final Module module = scope == null ? null : moduleManager.findModuleByName(scope);
+        return module != null ? Collections.singletonList(module) : Arrays.asList(moduleManager.getModules());
+    }
+
+    @Nullable
+    private VirtualFile findScopeDirectory(@Nullable final String scope) {
+        if (scope == null || ReadAction.compute(() -> ModuleManager.getInstance(project).findModuleByName(scope)) != null) {
+            return null;
+        }
+        File directory = new File(scope);
+        if (!directory.isAbsolute() && project.getBasePath() != null) {
+            directory = new File(project.getBasePath(), scope);
+        }
+        final VirtualFile file = LocalFileSystem.getInstance().refreshAndFindFileByIoFile(directory);
+        if (file == null || !file.isDirectory()) {
+            throw new IllegalArgumentException("Unknown module or directory: " + scope);
+        }
+        return file;
+    }
+
+    private static void collectFiles(final Module module, @Nullable final VirtualFile directory, final List<VirtualFile> files) {
+        ModuleRootManager.getInstance(module).getFileIndex().iterateContent(file -> {
+            if (!file.isDirectory() && CandidateProvider.forFile(file) != null
+                    && (directory == null || VfsUtilCore.isAncestor(directory, file, false))) {
+                files.add(file);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * 应用阶段，在调用 {@link #run} 的线程上按分析完成的顺序逐个文件执行
+     */
+    private void processFile(final ParallelCandidateCollector.FileCandidates result) {
+        final VirtualFile file = result.getFile();
+        final List<SmartPsiElementPointer<PsiElement>> candidates = result.getPointers();
+        final CandidateProvider provider = CandidateProvider.forFile(file);
+        if (provider == null || candidates.isEmpty()) {
+            return;
+        }
+        out.print(ReadAction.compute(() -> report(file, candidates)));
+        out.flush();
+        missing.addAndGet(candidates.size());
+        if (!verify) {
+            ApplicationManager.getApplication().invokeAndWait(() -> {
+                WriteCommandAction.writeCommandAction(project).withName("Add final modifiers").run(() -> {
+                    final AddFinalPolicy policy = AddFinalPolicy.current();
+                    final List<PsiElement> elements = new ArrayList<>(candidates.size());
+                    for (final SmartPsiElementPointer<PsiElement> candidate : candidates) {
+                        final PsiElement element = candidate.getElement();
+                        if (provider.needsChange(element, policy)) {
+                            elements.add(element);
+                        }
+                    }
+                    provider.apply(elements);
+                    written.addAndGet(elements.size());
+                });
+                final Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+                if (document != null) {
+                    FileDocumentManager.getInstance().saveDocument(document);
+                }
+            });
+        }
+        // 及时释放指针，避免在大仓库中累积
+        final SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        for (final SmartPsiElementPointer<PsiElement> candidate : candidates) {
+            pointerManager.removePointer(candidate);
+        }
+    }
+
+    /**
+     * 在读操作中生成每个候选元素位置的报告
+     */
+    private String report(final VirtualFile file, final List<SmartPsiElementPointer<PsiElement>> candidates) {
+        final Document document = FileDocumentManager.getInstance().getDocument(file);
+        final StringBuilder report = new StringBuilder();
+        for (final SmartPsiElementPointer<PsiElement> candidate : candidates) {
+            final PsiElement element = candidate.getElement();
+            if (element == null) {
+                continue;
+            }
+            final int offset = element.getTextOffset();
+            final int line = document == null ? 0 : document.getLineNumber(offset);
+            final int column = document == null ? 0 : offset - document.getLineStartOffset(line);
+            report.append(file.getPath()).append(':').append(line + 1).append(':').append(column + 1)
+                    .append(": '").append(element instanceof PsiNamedElement ? ((PsiNamedElement) element).getName() : element.getText())
+                    .append(verify ? "' can be final" : "' made final").append('\n');
+        }
+        return report.toString();
+    }
+}
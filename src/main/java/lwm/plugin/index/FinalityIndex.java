@@ -0,0 +1,120 @@
+package lwm.plugin.index;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.indexing.SingleEntryFileBasedIndexExtension;
+import com.intellij.util.indexing.SingleEntryIndexer;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import lwm.plugin.core.AnalysisMode;
+import lwm.plugin.core.FinalModifierSupport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 每个 Java 文件中可以添加 final 的变量偏移，文件修改后由平台增量更新。
+ * 索引中不能解析引用，使用 {@link AnalysisMode#SYNTACTIC} 模式，结果可能比编辑器中少，
+ * 例如非 private 字段需要搜索其他文件中的写入，在索引中总是跳过
+ *
+ * @author longwm
+ */
+public final class FinalityIndex extends SingleEntryFileBasedIndexExtension<int[]> {
+
+    public static final ID<Integer, int[]> NAME = ID.create("lwm.plugin.finality");
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * 读取文件的候选偏移（声明名字的位置，升序），需要在智能模式的读操作中调用
+     */
+    @NotNull
+    public static int[] getOffsets(@NotNull final Project project, @NotNull final VirtualFile file) {
+        final Map<Integer, int[]> data = FileBasedIndex.getInstance().getFileData(NAME, file, project);
+        for (final int[] offsets : data.values()) {
+            return offsets;
+        }
+        return EMPTY;
+    }
+
+    @NotNull
+    @Override
+    public ID<Integer, int[]> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public SingleEntryIndexer<int[]> getIndexer() {
+        return new SingleEntryIndexer<int[]>(false) {
+            @Nullable
+            @Override
+            protected int[] computeValue(@NotNull final FileContent inputData) {
+                final PsiFile psiFile = inputData.getPsiFile();
+                final IntArrayList offsets = new IntArrayList();
+                FinalModifierSupport.collectCandidates(psiFile, AnalysisMode.SYNTACTIC, element -> offsets.add(element.getTextOffset()));
+                if (offsets.isEmpty()) {
+                    return null;
+                }
+                final int[] sorted = offsets.toIntArray();
+                Arrays.sort(sorted);
+                return sorted;
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<int[]> getValueExternalizer() {
+        return new DataExternalizer<int[]>() {
+            @Override
+            public void save(@NotNull final DataOutput out, final int[] value) throws IOException {
+                // 偏移升序存储，写入差值更紧凑
+                DataInputOutputUtil.writeINT(out, value.length);
+                int previous = 0;
+                for (final int offset : value) {
+                    DataInputOutputUtil.writeINT(out, offset - previous);
+                    previous = offset;
+                }
+            }
+
+            @Override
+            public int[] read(@NotNull final DataInput in) throws IOException {
+                final int[] value = new int[DataInputOutputUtil.readINT(in)];
+                int previous = 0;
+                for (int i = 0; i < value.length; i++) {
+                    previous += DataInputOutputUtil.readINT(in);
+                    value[i] = previous;
+                }
+                return value;
+            }
+        };
+    }
+
+    /**
+     * 索引内容来自候选分析，分析规则（字段名预过滤、记录/枚举/接口字段、提前 return、非 private 字段等）
+     * 每次变化都要增加版本，旧规则建立的索引才会重建
+     */
+    @Override
+    public int getVersion() {
+        return 5;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(JavaFileType.INSTANCE);
+    }
+}
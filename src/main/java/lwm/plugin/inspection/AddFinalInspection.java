@@ -0,0 +1,142 @@
+package lwm.plugin.inspection;
+
+import com.intellij.codeInspection.AbstractBaseJavaLocalInspectionTool;
+import com.intellij.codeInspection.LocalQuickFix;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.util.IntentionFamilyName;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiIdentifier;
+import com.intellij.psi.PsiLocalVariable;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.PsiVariable;
+import lwm.plugin.core.FinalModifierSupport;
+import lwm.plugin.settings.AddFinalPolicy;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 高亮可以添加 final 的字段、参数和局部变量。
+ * 只访问单个变量声明，守护进程增量高亮时只会重新访问修改过的部分；
+ * 高亮只检查顶层类内的写入，快速修复应用前才搜索其他文件中对字段的写入
+ *
+ * @author longwm
+ */
+public class AddFinalInspection extends AbstractBaseJavaLocalInspectionTool {
+
+    @Override
+    public @NotNull PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, final boolean isOnTheFly) {
+        final AddFinalPolicy policy = AddFinalPolicy.current();
+        if (!policy.acceptsFile(holder.getFile())) {
+            return PsiElementVisitor.EMPTY_VISITOR;
+        }
+        return new JavaElementVisitor() {
+            @Override
+            public void visitField(final PsiField field) {
+                check(field);
+            }
+
+            @Override
+            public void visitParameter(final PsiParameter parameter) {
+                check(parameter);
+            }
+
+            @Override
+            public void visitLocalVariable(final PsiLocalVariable variable) {
+                check(variable);
+            }
+
+            private void check(final PsiVariable variable) {
+                final PsiIdentifier nameIdentifier = variable.getNameIdentifier();
+                if (nameIdentifier == null || !FinalModifierSupport.needsFinal(variable, policy)) {
+                    return;
+                }
+                holder.registerProblem(nameIdentifier, "Variable '#ref' can be final(可以添加final修饰)",
+                                       ProblemHighlightType.GENERIC_ERROR_OR_WARNING,
+                                       new AddFinalFix(), new AddFinalInFileFix());
+            }
+        };
+    }
+
+    /**
+     * 在可取消的模态进度中排除在其他文件中被写入的字段，检查本身只看顶层类内的写入；
+     * 取消时返回空列表
+     */
+    private static List<PsiModifierListOwner> withoutWrittenElsewhere(final Project project, final List<PsiModifierListOwner> candidates) {
+        try {
+            return ProgressManager.getInstance().runProcessWithProgressSynchronously(
+                    () -> ReadAction.compute(() -> FinalModifierSupport.withoutWrittenElsewhere(candidates)),
+                    "Searching for field writes", true, project);
+        } catch (final ProcessCanceledException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static void apply(final Project project, final PsiFile file, final List<PsiModifierListOwner> candidates) {
+        final List<PsiModifierListOwner> confirmed = withoutWrittenElsewhere(project, candidates);
+        if (!confirmed.isEmpty()) {
+            WriteCommandAction.writeCommandAction(project, file).withName("Add final modifier")
+                    .run(() -> FinalModifierSupport.applyFinal(confirmed));
+        }
+    }
+
+    /**
+     * 给当前变量添加 final
+     */
+    private static class AddFinalFix implements LocalQuickFix {
+        @Override
+        public @IntentionFamilyName @NotNull String getFamilyName() {
+            return "Add final modifier";
+        }
+
+        @Override
+        public boolean startInWriteAction() {
+            return false;
+        }
+
+        @Override
+        public void applyFix(@NotNull final Project project, @NotNull final ProblemDescriptor descriptor) {
+            final PsiElement parent = descriptor.getPsiElement().getParent();
+            if (parent instanceof PsiModifierListOwner && FinalModifierSupport.needsFinal((PsiModifierListOwner) parent)) {
+                apply(project, parent.getContainingFile(), Collections.singletonList((PsiModifierListOwner) parent));
+            }
+        }
+    }
+
+    /**
+     * 在一个写命令中给文件内所有可以添加 final 的变量添加修饰符
+     */
+    private static class AddFinalInFileFix implements LocalQuickFix {
+        @Override
+        public @IntentionFamilyName @NotNull String getFamilyName() {
+            return "Add final modifier to all variables in file";
+        }
+
+        @Override
+        public boolean startInWriteAction() {
+            return false;
+        }
+
+        @Override
+        public void applyFix(@NotNull final Project project, @NotNull final ProblemDescriptor descriptor) {
+            final PsiFile file = descriptor.getPsiElement().getContainingFile();
+            final List<PsiModifierListOwner> candidates = new ArrayList<>();
+            FinalModifierSupport.collectCandidates(file, candidates::add);
+            apply(project, file, candidates);
+        }
+    }
+}
@@ -1,38 +1,45 @@
 package lwm.plugin.intention;
 
+import com.intellij.codeInsight.hint.HintManager;
 import com.intellij.codeInsight.intention.IntentionAction;
 import com.intellij.codeInspection.util.IntentionFamilyName;
 import com.intellij.codeInspection.util.IntentionName;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
-import com.intellij.psi.PsiAssignmentExpression;
 import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiCodeBlock;
 import com.intellij.psi.PsiElement;
-import com.intellij.psi.PsiExpression;
-import com.intellij.psi.PsiField;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiJavaFile;
-import com.intellij.psi.PsiLocalVariable;
 import com.intellij.psi.PsiMethod;
-import com.intellij.psi.PsiModifier;
-import com.intellij.psi.PsiModifierList;
 import com.intellij.psi.PsiModifierListOwner;
-import com.intellij.psi.PsiParameter;
-import com.intellij.psi.PsiParameterList;
-import com.intellij.psi.PsiReferenceExpression;
 import com.intellij.psi.PsiVariable;
-import com.intellij.psi.util.PsiTreeUtil;
-import com.intellij.psi.util.PsiUtil;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
 import com.intellij.util.IncorrectOperationException;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import lwm.plugin.core.CandidateSummary;
+import lwm.plugin.core.FinalModifierSupport;
+import lwm.plugin.metrics.AddFinalMetrics;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @author longwm
  */
 public class AddFinalIntention implements IntentionAction {
+
+    /**
+     * 分析期间文档持续变化时最多分析的次数，超过后放弃并提示重新调用
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
     @Override
     public @IntentionName @NotNull String getText() {
         return "Add final modifier(添加final修饰)";
@@ -48,26 +55,32 @@ public class AddFinalIntention implements IntentionAction {
         if (!(file instanceof PsiJavaFile)) {
             return false;
         }
+        final long start = System.nanoTime();
+        try {
+            return isAvailableAtCaret(editor, file);
+        } finally {
+            AddFinalMetrics.IS_AVAILABLE.recordSince(start);
+        }
+    }
+
+    private static boolean isAvailableAtCaret(final Editor editor, final PsiFile file) {
         final PsiElement element = file.findElementAt(editor.getCaretModel().getOffset());
         if (element == null) {
             return false;
         }
 
-        final PsiField field = PsiTreeUtil.getParentOfType(element, PsiField.class, false);
-        if (field != null) {
-            return true;
+        // 只有确实会添加 final 时才可用，结果来自缓存的候选摘要
+        final PsiElement target = findTarget(element);
+        if (target instanceof PsiVariable) {
+            return FinalModifierSupport.needsFinal((PsiVariable) target);
         }
-        if (element instanceof PsiVariable) {
-            return true;
+        if (target instanceof PsiClass) {
+            return CandidateSummary.count((PsiClass) target) > 0;
         }
-        
-        // 检查是否在类名标识符上
-        final PsiClass psiClass = PsiTreeUtil.getParentOfType(element, PsiClass.class, false);
-        if (psiClass != null && isCaretOnClassIdentifier(element, psiClass)) {
-            return true;
+        if (target instanceof PsiMethod) {
+            return CandidateSummary.count((PsiMethod) target) > 0;
         }
-
-        return PsiTreeUtil.getParentOfType(element, PsiMethod.class) != null;
+        return false;
     }
 
     @Override
@@ -77,169 +90,117 @@ public class AddFinalIntention implements IntentionAction {
             return;
         }
 
-        // 优先检查是否直接在变量上
-        final PsiVariable specificVariable = PsiTreeUtil.getParentOfType(element, PsiVariable.class, false);
-        if (specificVariable != null) {
-            addFinalModifierIfNotPresent(specificVariable);
-            return;
-        }
-
-        // 检查是否在类名标识符上（而不是在类体内的其他地方）
-        final PsiClass psiClass = PsiTreeUtil.getParentOfType(element, PsiClass.class, false);
-        if (psiClass != null && isCaretOnClassIdentifier(element, psiClass)) {
-            processClass(psiClass);
-            return;
-        }
-
-        final PsiMethod containingMethod = PsiTreeUtil.getParentOfType(element, PsiMethod.class);
-        if (containingMethod != null) {
-            processMethod(containingMethod);
+        final PsiElement target = findTarget(element);
+        if (target instanceof PsiVariable || target instanceof PsiClass || target instanceof PsiMethod) {
+            final Document document = editor.getDocument();
+            analyzeAndApply(project, editor, file, document, SmartPointerManager.createPointer(target), 1);
         }
     }
 
     /**
-     * 处理整个类
+     * 在可取消的非阻塞读操作中收集变量、类或方法的候选元素，并排除在其他文件中被写入的字段，
+     * 写操作到来时分析会中断并重新开始，已完成部分的分析结果在缓存中复用；
+     * 结果回到 EDT 时文档已经变化则丢弃并重新分析，最多 {@link #MAX_ATTEMPTS} 次
      */
-    private void processClass(final PsiClass psiClass) {
-        // 处理类字段
-        for (final PsiField field : psiClass.getFields()) {
-            addFinalModifierIfNotPresent(field);
-        }
-
-        // 处理类中所有方法
-        for (final PsiMethod method : psiClass.getMethods()) {
-            processMethod(method);
-        }
+    private void analyzeAndApply(final Project project, final Editor editor, final PsiFile file, final Document document,
+                                 final SmartPsiElementPointer<PsiElement> target, final int attempt) {
+        ReadAction.nonBlocking(() -> collect(document, target))
+                .withDocumentsCommitted(project)
+                .expireWhen(editor::isDisposed)
+                .expireWith(project)
+                .coalesceBy(this, document)
+                .finishOnUiThread(ModalityState.defaultModalityState(), candidates -> {
+                    if (candidates.modificationStamp != document.getModificationStamp()) {
+                        if (attempt < MAX_ATTEMPTS) {
+                            analyzeAndApply(project, editor, file, document, target, attempt + 1);
+                        } else {
+                            HintManager.getInstance().showErrorHint(editor, "The file kept changing during analysis; invoke the intention again");
+                        }
+                        return;
+                    }
+                    WriteCommandAction.writeCommandAction(project, file).withName(getText()).run(() -> {
+                        final List<PsiModifierListOwner> elements = new ArrayList<>(candidates.pointers.size());
+                        for (final SmartPsiElementPointer<PsiModifierListOwner> pointer : candidates.pointers) {
+                            final PsiModifierListOwner candidate = pointer.getElement();
+                            if (candidate != null) {
+                                elements.add(candidate);
+                            }
+                        }
+                        FinalModifierSupport.applyFinal(elements);
+                    });
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
     }
 
-    /**
-     * 处理单个方法
-     */
-    private void processMethod(final PsiMethod method) {
-        // 给方法参数添加 final
-        final PsiParameterList parameterList = method.getParameterList();
-        for (final PsiParameter parameter : parameterList.getParameters()) {
-            addFinalModifierIfNotPresent(parameter);
-        }
-
-        // 给方法内局部变量添加 final
-        final PsiCodeBlock methodBody = method.getBody();
-        if (methodBody != null) {
-            final Collection<PsiLocalVariable> localVariables = PsiTreeUtil.collectElementsOfType(methodBody, PsiLocalVariable.class);
-            for (final PsiLocalVariable localVariable : localVariables) {
-                addFinalModifierIfNotPresent(localVariable);
-            }
-        }
-    }
-
-    private void addFinalModifierIfNotPresent(final PsiModifierListOwner element) {
-        if (element != null) {
-            final PsiModifierList modifierList = element.getModifierList();
-            if (modifierList != null && !modifierList.hasExplicitModifier(PsiModifier.FINAL) && canAddFinal(element)) {
-                PsiUtil.setModifierProperty(element, PsiModifier.FINAL, true);
-            }
-        }
-    }
-
-    /**
-     * 判断是否可以添加 final 修饰符
-     */
-    private boolean canAddFinal(final PsiModifierListOwner element) {
-        final PsiModifierList modifierList = element.getModifierList();
-        if (modifierList == null) {
-            return false;
-        }
-
-        // 对于字段，需要更严格的检查
-        if (element instanceof PsiField) {
-            final PsiField field = (PsiField) element;
-            // 如果字段没有初始化器，需要检查是否在构造器中被初始化
-            if (field.getInitializer() == null) {
-                // 如果是静态字段但没有初始化器，不能添加 final
-                if (modifierList.hasExplicitModifier(PsiModifier.STATIC)) {
-                    return false;
+    private static Candidates collect(final Document document, final SmartPsiElementPointer<PsiElement> pointer) {
+        final long modificationStamp = document.getModificationStamp();
+        final PsiElement target = pointer.getElement();
+        final List<SmartPsiElementPointer<PsiModifierListOwner>> pointers = new ArrayList<>();
+        if (target != null) {
+            final SmartPointerManager pointerManager = SmartPointerManager.getInstance(target.getProject());
+            final Consumer<PsiModifierListOwner> consumer = element -> {
+                if (!FinalModifierSupport.isWrittenElsewhere(element)) {
+                    pointers.add(pointerManager.createSmartPsiElementPointer(element));
                 }
-                // 对于实例字段，检查是否在构造器中被初始化
-                if (!isFieldInitializedInConstructor(field)) {
-                    return false;
+            };
+            if (target instanceof PsiVariable) {
+                final long start = System.nanoTime();
+                if (FinalModifierSupport.needsFinal((PsiVariable) target)) {
+                    consumer.accept((PsiVariable) target);
                 }
+                AddFinalMetrics.ANALYSIS.recordSince(start);
+            } else if (target instanceof PsiClass) {
+                FinalModifierSupport.collectCandidates((PsiClass) target, consumer);
+            } else if (target instanceof PsiMethod) {
+                FinalModifierSupport.collectCandidates((PsiMethod) target, consumer);
             }
         }
-
-        // 抽象方法的参数不能添加 final（虽然抽象方法本身没有方法体，但为了安全起见）
-        if (element instanceof PsiParameter) {
-            final PsiParameter parameter = (PsiParameter) element;
-            final PsiElement parent = parameter.getParent();
-            if (parent instanceof PsiParameterList) {
-                final PsiElement grandParent = parent.getParent();
-                if (grandParent instanceof PsiMethod) {
-                    final PsiMethod method = (PsiMethod) grandParent;
-                    return !method.hasModifierProperty(PsiModifier.ABSTRACT);
-                }
-            }
-        }
-
-        return true;
+        return new Candidates(modificationStamp, pointers);
     }
 
     /**
-     * 检查字段是否在构造器中被初始化
+     * 沿父节点向上一次遍历找到意图作用的目标：
+     * 优先是光标所在的变量，其次是光标所在类名对应的类，最后是所在的方法
      */
-    private boolean isFieldInitializedInConstructor(final PsiField field) {
-        final PsiClass containingClass = field.getContainingClass();
-        if (containingClass == null) {
-            return false;
-        }
-
-        final PsiMethod[] constructors = containingClass.getConstructors();
-        if (constructors.length == 0) {
-            // 没有显式构造器，Java会提供默认构造器，字段不会被初始化
-            return false;
-        }
-
-        // 检查所有构造器是否都初始化了该字段
-        for (final PsiMethod constructor : constructors) {
-            if (!isFieldInitializedInMethod(field, constructor)) {
-                return false;
+    private static PsiElement findTarget(final PsiElement element) {
+        PsiClass psiClass = null;
+        PsiMethod method = null;
+        for (PsiElement parent = element; parent != null && !(parent instanceof PsiFile); parent = parent.getParent()) {
+            if (parent instanceof PsiVariable) {
+                return parent;
             }
-        }
-
-        return true;
-    }
-
-    /**
-     * 检查字段是否在指定方法中被初始化
-     */
-    private boolean isFieldInitializedInMethod(final PsiField field, final PsiMethod method) {
-        final PsiCodeBlock body = method.getBody();
-        if (body == null) {
-            return false;
-        }
-
-        final Collection<PsiAssignmentExpression> assignments = PsiTreeUtil.collectElementsOfType(body, PsiAssignmentExpression.class);
-        for (final PsiAssignmentExpression assignment : assignments) {
-            final PsiExpression lhs = assignment.getLExpression();
-            if (lhs instanceof PsiReferenceExpression) {
-                final PsiReferenceExpression ref = (PsiReferenceExpression) lhs;
-                if (field.equals(ref.resolve())) {
-                    return true;
-                }
+            if (psiClass == null && parent instanceof PsiClass) {
+                psiClass = (PsiClass) parent;
+            } else if (method == null && parent instanceof PsiMethod) {
+                method = (PsiMethod) parent;
             }
         }
-
-        return false;
+        if (psiClass != null && isCaretOnClassIdentifier(element, psiClass)) {
+            return psiClass;
+        }
+        return method;
     }
-    
+
     /**
      * 检查光标是否在类名标识符上
      */
-    private boolean isCaretOnClassIdentifier(final PsiElement element, final PsiClass psiClass) {
+    private static boolean isCaretOnClassIdentifier(final PsiElement element, final PsiClass psiClass) {
         // 检查光标所在元素是否是类名标识符
         return element.getParent() == psiClass.getNameIdentifier() || element == psiClass.getNameIdentifier();
     }
 
     @Override
     public boolean startInWriteAction() {
-        return true;
+        return false;
+    }
+
+    private static final class Candidates {
+        private final long modificationStamp;
+        private final List<SmartPsiElementPointer<PsiModifierListOwner>> pointers;
+
+        Candidates(final long modificationStamp, final List<SmartPsiElementPointer<PsiModifierListOwner>> pointers) {
+            this.modificationStamp = modificationStamp;
+            this.pointers = pointers;
+        }
     }
 }
@@ -0,0 +1,101 @@
+package lwm.plugin.kotlin;
+
+import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.codeInspection.util.IntentionFamilyName;
+import com.intellij.codeInspection.util.IntentionName;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.util.IncorrectOperationException;
+import lwm.plugin.metrics.AddFinalMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.psi.KtClassOrObject;
+import org.jetbrains.kotlin.psi.KtElement;
+import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.kotlin.psi.KtNamedFunction;
+import org.jetbrains.kotlin.psi.KtProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Kotlin 版本的意图：光标在 var 属性上时只处理该属性，否则处理所在函数，光标在类名上时处理整个类
+ *
+ * @author longwm
+ */
+public class ConvertVarToValIntention implements IntentionAction {
+
+    @Override
+    public @IntentionName @NotNull String getText() {
+        return "Convert var to val(改为val)";
+    }
+
+    @Override
+    public @NotNull @IntentionFamilyName String getFamilyName() {
+        return "Convert var to val";
+    }
+
+    @Override
+    public boolean isAvailable(@NotNull final Project project, final Editor editor, final PsiFile file) {
+        if (!(file instanceof KtFile)) {
+            return false;
+        }
+        final long start = System.nanoTime();
+        try {
+            final PsiElement element = file.findElementAt(editor.getCaretModel().getOffset());
+            if (element == null) {
+                return false;
+            }
+            final KtProperty property = findProperty(element);
+            if (property != null) {
+                return KotlinValSupport.canBeVal(property);
+            }
+            final KtElement scope = findScope(element);
+            return scope != null && KotlinValSupport.count(scope) > 0;
+        } finally {
+            AddFinalMetrics.IS_AVAILABLE.recordSince(start);
+        }
+    }
+
+    @Override
+    public void invoke(@NotNull final Project project, final Editor editor, final PsiFile file) throws IncorrectOperationException {
+        final PsiElement element = file.findElementAt(editor.getCaretModel().getOffset());
+        if (element == null) {
+            return;
+        }
+        final KtProperty property = findProperty(element);
+        if (property != null) {
+            if (KotlinValSupport.canBeVal(property)) {
+                KotlinValApplier.apply(Collections.singletonList(property));
+            }
+            return;
+        }
+        final KtElement scope = findScope(element);
+        if (scope != null) {
+            final List<KtProperty> properties = new ArrayList<>();
+            KotlinValSupport.collectCandidates(scope, properties::add);
+            KotlinValApplier.apply(properties);
+        }
+    }
+
+    private static KtProperty findProperty(final PsiElement element) {
+        return PsiTreeUtil.getParentOfType(element, KtProperty.class, false, KtNamedFunction.class, KtClassOrObject.class);
+    }
+
+    private static KtElement findScope(final PsiElement element) {
+        final KtClassOrObject psiClass = PsiTreeUtil.getParentOfType(element, KtClassOrObject.class);
+        if (psiClass != null && psiClass.getNameIdentifier() != null
+                && PsiTreeUtil.isAncestor(psiClass.getNameIdentifier(), element, false)) {
+            return psiClass;
+        }
+        return PsiTreeUtil.getParentOfType(element, KtNamedFunction.class);
+    }
+
+    @Override
+    public boolean startInWriteAction() {
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package lwm.plugin.kotlin;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import lwm.plugin.core.CandidateProvider;
+import lwm.plugin.core.TextEdit;
+import lwm.plugin.settings.AddFinalPolicy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.idea.KotlinFileType;
+import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.kotlin.psi.KtProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Kotlin 文件：把从未重新赋值的 var 改为 val。设置中的元素级规则针对 Java 变量，这里只应用文件级规则
+ *
+ * @author longwm
+ */
+public class KotlinCandidateProvider implements CandidateProvider {
+
+    @Override
+    public boolean isApplicable(@NotNull final VirtualFile file) {
+        return file.getFileType() == KotlinFileType.INSTANCE;
+    }
+
+    @Override
+    public void collectCandidates(@NotNull final PsiFile file, @NotNull final Consumer<? super PsiElement> consumer) {
+        if (file instanceof KtFile && AddFinalPolicy.current().acceptsFile(file)) {
+            KotlinValSupport.collectCandidates((KtFile) file, consumer);
+        }
+    }
+
+    @Override
+    public boolean needsChange(@Nullable final PsiElement element, @NotNull final AddFinalPolicy policy) {
+        return element instanceof KtProperty && KotlinValSupport.canBeVal((KtProperty) element);
+    }
+
+    @Nullable
+    @Override
+    public TextEdit findEdit(@NotNull final PsiElement element) {
+        return element instanceof KtProperty ? KotlinValApplier.findReplacement((KtProperty) element) : null;
+    }
+
+    @Override
+    public void apply(@NotNull final Collection<? extends PsiElement> elements) {
+        final List<KtProperty> properties = new ArrayList<>(elements.size());
+        for (final PsiElement element : elements) {
+            properties.add((KtProperty) element);
+        }
+        KotlinValApplier.apply(properties);
+    }
+}
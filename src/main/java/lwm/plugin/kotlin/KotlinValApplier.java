@@ -0,0 +1,90 @@
+package lwm.plugin.kotlin;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.DocumentUtil;
+import lwm.plugin.core.TextEdit;
+import lwm.plugin.metrics.AddFinalMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.psi.KtProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把 var 关键字替换为 val：和 Java 的批量添加一样，每个文档只做一次批量修改并提交一次
+ *
+ * @author longwm
+ */
+public final class KotlinValApplier {
+
+    private static final String VAL = "val";
+
+    private KotlinValApplier() {
+    }
+
+    /**
+     * 把所有属性改为 val，需要在写操作中调用
+     */
+    public static void apply(@NotNull final Collection<? extends KtProperty> properties) {
+        final long start = System.nanoTime();
+        final Map<PsiFile, List<KtProperty>> byFile = new LinkedHashMap<>();
+        for (final KtProperty property : properties) {
+            if (property.isValid()) {
+                byFile.computeIfAbsent(property.getContainingFile(), k -> new ArrayList<>()).add(property);
+            }
+        }
+        for (final Map.Entry<PsiFile, List<KtProperty>> entry : byFile.entrySet()) {
+            apply(entry.getKey(), entry.getValue());
+        }
+        AddFinalMetrics.WRITE_ACTION.recordSince(start);
+    }
+
+    /**
+     * 把 var 关键字替换为 val 的文本修改，需要在读操作中调用
+     */
+    @Nullable
+    public static TextEdit findReplacement(@NotNull final KtProperty property) {
+        final PsiElement keyword = property.getValOrVarKeyword();
+        if (keyword == null || !property.isVar()) {
+            return null;
+        }
+        final TextRange range = keyword.getTextRange();
+        return new TextEdit(range.getStartOffset(), range.getEndOffset(), VAL);
+    }
+
+    private static void apply(final PsiFile file, final List<KtProperty> properties) {
+        final PsiDocumentManager documentManager = PsiDocumentManager.getInstance(file.getProject());
+        final Document document = documentManager.getDocument(file);
+        if (document == null) {
+            return;
+        }
+        documentManager.doPostponedOperationsAndUnblockDocument(document);
+
+        final List<TextEdit> keywords = new ArrayList<>(properties.size());
+        for (final KtProperty property : properties) {
+            final TextEdit keyword = findReplacement(property);
+            if (keyword != null) {
+                keywords.add(keyword);
+            }
+        }
+        if (keywords.isEmpty()) {
+            return;
+        }
+        keywords.sort(TextEdit.FROM_END);
+        DocumentUtil.executeInBulk(document, keywords.size() > 1, () -> {
+            for (final TextEdit keyword : keywords) {
+                document.replaceString(keyword.getStartOffset(), keyword.getEndOffset(), keyword.getText());
+            }
+        });
+        documentManager.commitDocument(document);
+        AddFinalMetrics.MODIFIERS_ADDED.add(keywords.size());
+    }
+}
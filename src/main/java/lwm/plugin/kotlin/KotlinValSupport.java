@@ -0,0 +1,190 @@
+package lwm.plugin.kotlin;
+
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import lwm.plugin.metrics.AddFinalMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.lexer.KtTokens;
+import org.jetbrains.kotlin.psi.KtBinaryExpression;
+import org.jetbrains.kotlin.psi.KtCallableReferenceExpression;
+import org.jetbrains.kotlin.psi.KtClassOrObject;
+import org.jetbrains.kotlin.psi.KtElement;
+import org.jetbrains.kotlin.psi.KtExpression;
+import org.jetbrains.kotlin.psi.KtFile;
+import org.jetbrains.kotlin.psi.KtObjectDeclaration;
+import org.jetbrains.kotlin.psi.KtProperty;
+import org.jetbrains.kotlin.psi.KtPsiUtil;
+import org.jetbrains.kotlin.psi.KtQualifiedExpression;
+import org.jetbrains.kotlin.psi.KtSimpleNameExpression;
+import org.jetbrains.kotlin.psi.KtTreeVisitorVoid;
+import org.jetbrains.kotlin.psi.KtUnaryExpression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Kotlin 中从未被重新赋值的 {@code var}：局部变量，以及没有自定义 setter、委托和 lateinit 的私有属性。
+ * 和 Java 一样先按名字建立作用域内的写操作索引并缓存，只有同名的写入才需要解析
+ *
+ * @author longwm
+ */
+public final class KotlinValSupport {
+
+    private KotlinValSupport() {
+    }
+
+    /**
+     * 只读地收集元素（文件、类或函数）中可以改为 val 的属性
+     */
+    public static void collectCandidates(@NotNull final KtElement root, @NotNull final Consumer<? super KtProperty> consumer) {
+        final long start = System.nanoTime();
+        try {
+            root.accept(new KtTreeVisitorVoid() {
+                @Override
+                public void visitProperty(@NotNull final KtProperty property) {
+                    ProgressManager.checkCanceled();
+                    AddFinalMetrics.ELEMENTS_VISITED.increment();
+                    if (canBeVal(property)) {
+                        consumer.accept(property);
+                    }
+                    super.visitProperty(property);
+                }
+            });
+        } finally {
+            AddFinalMetrics.ANALYSIS.recordSince(start);
+        }
+    }
+
+    /**
+     * 元素中可以改为 val 的属性数量，缓存到所在文件修改为止，用于快速判断意图是否可用
+     */
+    public static int count(@NotNull final KtElement root) {
+        return CachedValuesManager.getCachedValue(root, () -> {
+            final int[] count = {0};
+            collectCandidates(root, candidate -> count[0]++);
+            return CachedValueProvider.Result.create(count[0], root);
+        });
+    }
+
+    /**
+     * 属性声明为 var，但可以安全地改为 val
+     */
+    public static boolean canBeVal(@Nullable final KtProperty property) {
+        if (property == null || !property.isVar() || property.getValOrVarKeyword() == null
+                || property.hasDelegate() || property.getSetter() != null || property.hasModifier(KtTokens.LATEINIT_KEYWORD)) {
+            return false;
+        }
+        final PsiElement scope = writeScope(property);
+        if (scope == null) {
+            return false;
+        }
+        // 没有初始化器的属性需要在声明之后赋值，这里保守地不处理
+        if (!property.hasInitializer()) {
+            return false;
+        }
+        return !isWrittenIn(property, scope);
+    }
+
+    /**
+     * 范围内是否有对该属性的写入。同名写入需要解析，意图在 EDT 上每次移动光标都会检查，
+     * 因此结果缓存在声明上，到范围修改为止
+     */
+    private static boolean isWrittenIn(final KtProperty property, final PsiElement scope) {
+        return CachedValuesManager.getCachedValue(property, () -> {
+            final List<KtSimpleNameExpression> candidates = writesByName(scope).get(property.getName());
+            return CachedValueProvider.Result.create(candidates != null && isReferenceToAny(candidates, property), scope);
+        });
+    }
+
+    private static boolean isReferenceToAny(final List<KtSimpleNameExpression> writes, final KtProperty property) {
+        for (final KtSimpleNameExpression write : writes) {
+            for (final PsiReference reference : write.getReferences()) {
+                AddFinalMetrics.RESOLVES.increment();
+                if (reference.isReferenceTo(property)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 能看到该属性的所有写操作的范围：局部变量是所在代码块，私有成员属性是所在类（伴生对象是外部类），私有顶层属性是所在文件；
+     * 其他属性可能在别的文件中被赋值，返回 null
+     */
+    @Nullable
+    private static PsiElement writeScope(final KtProperty property) {
+        if (property.isLocal()) {
+            return property.getParent();
+        }
+        if (!property.hasModifier(KtTokens.PRIVATE_KEYWORD)) {
+            return null;
+        }
+        KtClassOrObject containingClass = PsiTreeUtil.getParentOfType(property, KtClassOrObject.class);
+        // 伴生对象的私有成员在外部类中也可见
+        if (containingClass instanceof KtObjectDeclaration && ((KtObjectDeclaration) containingClass).isCompanion()) {
+            containingClass = PsiTreeUtil.getParentOfType(containingClass, KtClassOrObject.class);
+        }
+        return containingClass != null ? containingClass : property.getContainingFile() instanceof KtFile ? property.getContainingFile() : null;
+    }
+
+    private static Map<String, List<KtSimpleNameExpression>> writesByName(final PsiElement scope) {
+        return CachedValuesManager.getCachedValue(scope,
+                () -> CachedValueProvider.Result.create(collectWrites(scope), scope));
+    }
+
+    private static Map<String, List<KtSimpleNameExpression>> collectWrites(final PsiElement scope) {
+        final Map<String, List<KtSimpleNameExpression>> writesByName = new HashMap<>();
+        scope.accept(new KtTreeVisitorVoid() {
+            @Override
+            public void visitBinaryExpression(@NotNull final KtBinaryExpression expression) {
+                super.visitBinaryExpression(expression);
+                if (KtTokens.ALL_ASSIGNMENTS.contains(expression.getOperationToken())) {
+                    record(expression.getLeft());
+                }
+            }
+
+            @Override
+            public void visitUnaryExpression(@NotNull final KtUnaryExpression expression) {
+                super.visitUnaryExpression(expression);
+                final IElementType token = expression.getOperationToken();
+                if (token == KtTokens.PLUSPLUS || token == KtTokens.MINUSMINUS) {
+                    record(expression.getBaseExpression());
+                }
+            }
+
+            @Override
+            public void visitCallableReferenceExpression(@NotNull final KtCallableReferenceExpression expression) {
+                super.visitCallableReferenceExpression(expression);
+                // ::x 可能作为 KMutableProperty 被写入，保守地当作写操作
+                record(expression.getCallableReference());
+            }
+
+            private void record(@Nullable final KtExpression target) {
+                ProgressManager.checkCanceled();
+                if (target == null) {
+                    return;
+                }
+                KtExpression expression = KtPsiUtil.safeDeparenthesize(target);
+                if (expression instanceof KtQualifiedExpression) {
+                    expression = ((KtQualifiedExpression) expression).getSelectorExpression();
+                }
+                if (expression instanceof KtSimpleNameExpression) {
+                    final KtSimpleNameExpression name = (KtSimpleNameExpression) expression;
+                    writesByName.computeIfAbsent(name.getReferencedName(), k -> new ArrayList<>(1)).add(name);
+                }
+            }
+        });
+        return writesByName.isEmpty() ? Collections.emptyMap() : writesByName;
+    }
+}
@@ -0,0 +1,113 @@
+package lwm.plugin.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 插件内部的耗时和计数统计，进程级别共享，所有入口（意图、检查、批量、提交前）都会记录。
+ * 记录只是原子加法，不需要开关
+ *
+ * @author longwm
+ */
+public final class AddFinalMetrics {
+
+    /**
+     * 意图 isAvailable 的耗时
+     */
+    public static final Histogram IS_AVAILABLE = new Histogram("isAvailable");
+    /**
+     * 只读分析阶段（收集候选元素）的耗时
+     */
+    public static final Histogram ANALYSIS = new Histogram("analysis");
+    /**
+     * 写操作阶段（添加修饰符）的耗时
+     */
+    public static final Histogram WRITE_ACTION = new Histogram("writeAction");
+
+    /**
+     * 检查过的变量数
+     */
+    public static final LongAdder ELEMENTS_VISITED = new LongAdder();
+    /**
+     * 字段初始化和写入分析中执行的引用解析次数
+     */
+    public static final LongAdder RESOLVES = new LongAdder();
+    /**
+     * 添加的 final 修饰符数
+     */
+    public static final LongAdder MODIFIERS_ADDED = new LongAdder();
+
+    private static final List<Histogram> HISTOGRAMS = Collections.unmodifiableList(Arrays.asList(IS_AVAILABLE, ANALYSIS, WRITE_ACTION));
+
+    private AddFinalMetrics() {
+    }
+
+    @NotNull
+    public static List<Histogram> getHistograms() {
+        return HISTOGRAMS;
+    }
+
+    public static void reset() {
+        for (final Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        ELEMENTS_VISITED.reset();
+        RESOLVES.reset();
+        MODIFIERS_ADDED.reset();
+    }
+
+    /**
+     * 便于阅读的文本报告
+     */
+    @NotNull
+    public static String toText() {
+        final StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-12s %8s %10s %10s %10s %10s %10s%n",
+                                  "phase", "count", "total ms", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (final Histogram histogram : HISTOGRAMS) {
+            text.append(String.format(Locale.ROOT, "%-12s %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                                      histogram.getName(), histogram.getCount(),
+                                      Histogram.toMillis(histogram.getTotalNanos()),
+                                      Histogram.toMillis(histogram.getPercentileNanos(50)),
+                                      Histogram.toMillis(histogram.getPercentileNanos(90)),
+                                      Histogram.toMillis(histogram.getPercentileNanos(99)),
+                                      Histogram.toMillis(histogram.getMaxNanos())));
+        }
+        text.append('\n');
+        text.append("elements visited: ").append(ELEMENTS_VISITED.sum()).append('\n');
+        text.append("resolves:         ").append(RESOLVES.sum()).append('\n');
+        text.append("modifiers added:  ").append(MODIFIERS_ADDED.sum()).append('\n');
+        return text.toString();
+    }
+
+    /**
+     * JSON 格式的完整数据，耗时单位为纳秒
+     */
+    @NotNull
+    public static String toJson() {
+        final StringBuilder json = new StringBuilder("{\n  \"histograms\": {");
+        for (int i = 0; i < HISTOGRAMS.size(); i++) {
+            final Histogram histogram = HISTOGRAMS.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    \"").append(histogram.getName()).append("\": {")
+                    .append("\"count\": ").append(histogram.getCount())
+                    .append(", \"totalNanos\": ").append(histogram.getTotalNanos())
+                    .append(", \"p50Nanos\": ").append(histogram.getPercentileNanos(50))
+                    .append(", \"p90Nanos\": ").append(histogram.getPercentileNanos(90))
+                    .append(", \"p99Nanos\": ").append(histogram.getPercentileNanos(99))
+                    .append(", \"maxNanos\": ").append(histogram.getMaxNanos())
+                    .append('}');
+        }
+        json.append("\n  },\n  \"counters\": {")
+                .append("\n    \"elementsVisited\": ").append(ELEMENTS_VISITED.sum())
+                .append(",\n    \"resolves\": ").append(RESOLVES.sum())
+                .append(",\n    \"modifiersAdded\": ").append(MODIFIERS_ADDED.sum())
+                .append("\n  }\n}\n");
+        return json.toString();
+    }
+}
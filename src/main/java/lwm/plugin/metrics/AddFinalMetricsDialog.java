@@ -0,0 +1,87 @@
+package lwm.plugin.metrics;
+
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextArea;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.Action;
+import javax.swing.JComponent;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * 展示 {@link AddFinalMetrics} 的当前数据，可以清零或导出为 JSON
+ *
+ * @author longwm
+ */
+class AddFinalMetricsDialog extends DialogWrapper {
+
+    private final Project project;
+    private final JBTextArea textArea = new JBTextArea();
+
+    AddFinalMetricsDialog(@Nullable final Project project) {
+        super(project);
+        this.project = project;
+        setTitle("Add Final Modifier Metrics");
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, textArea.getFont().getSize()));
+        textArea.setText(AddFinalMetrics.toText());
+        init();
+    }
+
+    @Override
+    protected @Nullable JComponent createCenterPanel() {
+        final JBScrollPane scrollPane = new JBScrollPane(textArea);
+        scrollPane.setPreferredSize(JBUI.size(640, 240));
+        return scrollPane;
+    }
+
+    @Override
+    protected Action @NotNull [] createLeftSideActions() {
+        return new Action[]{
+                new DialogWrapperAction("Reset") {
+                    @Override
+                    protected void doAction(final ActionEvent e) {
+                        AddFinalMetrics.reset();
+                        textArea.setText(AddFinalMetrics.toText());
+                    }
+                },
+                new DialogWrapperAction("Save as JSON...") {
+                    @Override
+                    protected void doAction(final ActionEvent e) {
+                        saveJson();
+                    }
+                }
+        };
+    }
+
+    @Override
+    protected Action @NotNull [] createActions() {
+        return new Action[]{getOKAction()};
+    }
+
+    private void saveJson() {
+        final FileSaverDescriptor descriptor = new FileSaverDescriptor("Save Metrics", "Save metrics as JSON", "json");
+        final VirtualFileWrapper target = FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project)
+                .save("add-final-metrics.json");
+        if (target == null) {
+            return;
+        }
+        try {
+            Files.write(target.getFile().toPath(), AddFinalMetrics.toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException ex) {
+            Messages.showErrorDialog(project, ex.getMessage(), "Save Metrics");
+        }
+    }
+}
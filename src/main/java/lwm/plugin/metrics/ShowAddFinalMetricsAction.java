@@ -0,0 +1,18 @@
+package lwm.plugin.metrics;
+
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.DumbAwareAction;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 诊断用：查看意图和分析各阶段的耗时分布与计数
+ *
+ * @author longwm
+ */
+public class ShowAddFinalMetricsAction extends DumbAwareAction {
+
+    @Override
+    public void actionPerformed(@NotNull final AnActionEvent e) {
+        new AddFinalMetricsDialog(e.getProject()).show();
+    }
+}
@@ -0,0 +1,102 @@
+package lwm.plugin.settings;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+
+/**
+ * Settings | Tools | Add Final Modifier
+ *
+ * @author longwm
+ */
+public class AddFinalConfigurable implements Configurable {
+
+    private JBCheckBox onlyFields;
+    private JBCheckBox skipCatchParameters;
+    private JBCheckBox skipForEachVariables;
+    private JBCheckBox skipInterfaceDefaultMethods;
+    private JBCheckBox skipTestSources;
+    private JBCheckBox excludeGeneratedCode;
+
+    @Override
+    public @Nls(capitalization = Nls.Capitalization.Title) String getDisplayName() {
+        return "Add Final Modifier";
+    }
+
+    @Override
+    public @Nullable JComponent createComponent() {
+        onlyFields = new JBCheckBox("Only fields");
+        skipCatchParameters = new JBCheckBox("Skip catch parameters");
+        skipForEachVariables = new JBCheckBox("Skip for-each variables");
+        skipInterfaceDefaultMethods = new JBCheckBox("Skip variables in interface default methods");
+        skipTestSources = new JBCheckBox("Skip test sources");
+        excludeGeneratedCode = new JBCheckBox("Exclude generated code");
+        final JPanel panel = FormBuilder.createFormBuilder()
+                .addComponent(onlyFields)
+                .addComponent(skipCatchParameters)
+                .addComponent(skipForEachVariables)
+                .addComponent(skipInterfaceDefaultMethods)
+                .addComponent(skipTestSources)
+                .addComponent(excludeGeneratedCode)
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+        reset();
+        return panel;
+    }
+
+    @Override
+    public boolean isModified() {
+        final AddFinalSettings.State state = AddFinalSettings.getInstance().getState();
+        return onlyFields.isSelected() != state.onlyFields
+                || skipCatchParameters.isSelected() != state.skipCatchParameters
+                || skipForEachVariables.isSelected() != state.skipForEachVariables
+                || skipInterfaceDefaultMethods.isSelected() != state.skipInterfaceDefaultMethods
+                || skipTestSources.isSelected() != state.skipTestSources
+                || excludeGeneratedCode.isSelected() != state.excludeGeneratedCode;
+    }
+
+    @Override
+    public void apply() {
+        final AddFinalSettings.State state = new AddFinalSettings.State();
+        state.onlyFields = onlyFields.isSelected();
+        state.skipCatchParameters = skipCatchParameters.isSelected();
+        state.skipForEachVariables = skipForEachVariables.isSelected();
+        state.skipInterfaceDefaultMethods = skipInterfaceDefaultMethods.isSelected();
+        state.skipTestSources = skipTestSources.isSelected();
+        state.excludeGeneratedCode = excludeGeneratedCode.isSelected();
+        AddFinalSettings.getInstance().loadState(state);
+        // 检查的高亮结果依赖策略，需要重新计算
+        for (final Project project : ProjectManager.getInstance().getOpenProjects()) {
+            DaemonCodeAnalyzer.getInstance(project).restart();
+        }
+    }
+
+    @Override
+    public void reset() {
+        final AddFinalSettings.State state = AddFinalSettings.getInstance().getState();
+        onlyFields.setSelected(state.onlyFields);
+        skipCatchParameters.setSelected(state.skipCatchParameters);
+        skipForEachVariables.setSelected(state.skipForEachVariables);
+        skipInterfaceDefaultMethods.setSelected(state.skipInterfaceDefaultMethods);
+        skipTestSources.setSelected(state.skipTestSources);
+        excludeGeneratedCode.setSelected(state.excludeGeneratedCode);
+    }
+
+    @Override
+    public void disposeUIResources() {
+        onlyFields = null;
+        skipCatchParameters = null;
+        skipForEachVariables = null;
+        skipInterfaceDefaultMethods = null;
+        skipTestSources = null;
+        excludeGeneratedCode = null;
+    }
+}
@@ -0,0 +1,119 @@
+package lwm.plugin.settings;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.GeneratedSourcesFilter;
+import com.intellij.openapi.roots.TestSourcesFilter;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiCatchSection;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiForeachStatement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiParameter;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 由设置编译出的过滤规则：文件级规则（测试代码、生成代码）每个文件判断一次，
+ * 元素级规则编译为谓词数组，没有启用任何规则时不做任何判断
+ *
+ * @author longwm
+ */
+public final class AddFinalPolicy {
+
+    /**
+     * 不过滤任何元素，也用于结果不能依赖设置的场景（如索引）
+     */
+    public static final AddFinalPolicy ALLOW_ALL = new AddFinalPolicy(false, false, new ArrayList<>());
+
+    private final boolean skipTestSources;
+    private final boolean excludeGeneratedCode;
+    private final Predicate<PsiModifierListOwner>[] elementRules;
+
+    @SuppressWarnings("unchecked")
+    private AddFinalPolicy(final boolean skipTestSources, final boolean excludeGeneratedCode,
+                           final List<Predicate<PsiModifierListOwner>> elementRules) {
+        this.skipTestSources = skipTestSources;
+        this.excludeGeneratedCode = excludeGeneratedCode;
+        this.elementRules = elementRules.toArray(new Predicate[0]);
+    }
+
+    /**
+     * 当前设置对应的策略
+     */
+    @NotNull
+    public static AddFinalPolicy current() {
+        return AddFinalSettings.getInstance().getPolicy();
+    }
+
+    @NotNull
+    static AddFinalPolicy compile(@NotNull final AddFinalSettings.State state) {
+        final List<Predicate<PsiModifierListOwner>> rules = new ArrayList<>();
+        if (state.onlyFields) {
+            rules.add(element -> element instanceof PsiField);
+        }
+        if (state.skipCatchParameters) {
+            rules.add(element -> !isParameterOf(element, PsiCatchSection.class));
+        }
+        if (state.skipForEachVariables) {
+            rules.add(element -> !isParameterOf(element, PsiForeachStatement.class));
+        }
+        if (state.skipInterfaceDefaultMethods) {
+            rules.add(element -> !isInDefaultMethod(element));
+        }
+        if (rules.isEmpty() && !state.skipTestSources && !state.excludeGeneratedCode) {
+            return ALLOW_ALL;
+        }
+        return new AddFinalPolicy(state.skipTestSources, state.excludeGeneratedCode, rules);
+    }
+
+    /**
+     * 文件级规则：是否处理该文件
+     */
+    public boolean acceptsFile(@Nullable final PsiFile file) {
+        if (!skipTestSources && !excludeGeneratedCode || file == null) {
+            return true;
+        }
+        final VirtualFile virtualFile = file.getVirtualFile();
+        return virtualFile == null || acceptsFile(file.getProject(), virtualFile);
+    }
+
+    /**
+     * 文件级规则：是否处理该文件
+     */
+    public boolean acceptsFile(@NotNull final Project project, @NotNull final VirtualFile file) {
+        if (skipTestSources && TestSourcesFilter.isTestSources(file, project)) {
+            return false;
+        }
+        return !(excludeGeneratedCode && GeneratedSourcesFilter.isGeneratedSourceByAnyFilter(file, project));
+    }
+
+    /**
+     * 元素级规则：是否处理该变量，不包括文件级规则
+     */
+    public boolean accepts(@NotNull final PsiModifierListOwner element) {
+        for (final Predicate<PsiModifierListOwner> rule : elementRules) {
+            if (!rule.test(element)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isParameterOf(final PsiModifierListOwner element, final Class<? extends PsiElement> scopeClass) {
+        return element instanceof PsiParameter && scopeClass.isInstance(((PsiParameter) element).getDeclarationScope());
+    }
+
+    private static boolean isInDefaultMethod(final PsiModifierListOwner element) {
+        final PsiMethod method = PsiTreeUtil.getParentOfType(element, PsiMethod.class);
+        return method != null && method.hasModifierProperty(PsiModifier.DEFAULT);
+    }
+}
@@ -0,0 +1,69 @@
+package lwm.plugin.settings;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 添加 final 的策略设置，每次修改后重新编译为 {@link AddFinalPolicy}，分析时不再读取设置
+ *
+ * @author longwm
+ */
+@Service
+@State(name = "AddFinalSettings", storages = @Storage("addFinalModifier.xml"))
+public final class AddFinalSettings implements PersistentStateComponent<AddFinalSettings.State> {
+
+    private final SimpleModificationTracker modificationTracker = new SimpleModificationTracker();
+    private State state = new State();
+    private volatile AddFinalPolicy policy = AddFinalPolicy.ALLOW_ALL;
+
+    public static AddFinalSettings getInstance() {
+        return ApplicationManager.getApplication().getService(AddFinalSettings.class);
+    }
+
+    /**
+     * 当前设置编译后的策略
+     */
+    @NotNull
+    public AddFinalPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 设置修改后递增，依赖策略的缓存结果需要同时依赖它
+     */
+    @NotNull
+    public ModificationTracker getModificationTracker() {
+        return modificationTracker;
+    }
+
+    @NotNull
+    @Override
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull final State state) {
+        final State copy = new State();
+        XmlSerializerUtil.copyBean(state, copy);
+        this.state = copy;
+        this.policy = AddFinalPolicy.compile(copy);
+        modificationTracker.incModificationCount();
+    }
+
+    public static final class State {
+        public boolean skipCatchParameters;
+        public boolean skipForEachVariables;
+        public boolean onlyFields;
+        public boolean skipInterfaceDefaultMethods;
+        public boolean skipTestSources;
+        public boolean excludeGeneratedCode;
+    }
+}
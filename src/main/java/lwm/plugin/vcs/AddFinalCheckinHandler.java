@@ -0,0 +1,167 @@
+package lwm.plugin.vcs;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vcs.CheckinProjectPanel;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.checkin.CheckinHandler;
+import com.intellij.openapi.vcs.ui.RefreshableOnComponent;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.ui.NonFocusableCheckBox;
+import lwm.plugin.core.FinalModifierSupport;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.JComponent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 提交前只在变更的行范围内添加 final，分析只覆盖这些范围对应的 PSI，
+ * 耗时取决于变更大小而不是文件大小。分析在可取消的后台进度中进行，EDT 上只做修改
+ *
+ * @author longwm
+ */
+class AddFinalCheckinHandler extends CheckinHandler {
+
+    private static final String ENABLED_KEY = "lwm.plugin.addFinalBeforeCommit";
+
+    private final CheckinProjectPanel panel;
+
+    AddFinalCheckinHandler(final CheckinProjectPanel panel) {
+        this.panel = panel;
+    }
+
+    @Override
+    public @Nullable RefreshableOnComponent getBeforeCheckinConfigurationPanel() {
+        final Project project = panel.getProject();
+        final NonFocusableCheckBox checkBox = new NonFocusableCheckBox("Add final modifiers to changed lines");
+        return new RefreshableOnComponent() {
+            @Override
+            public JComponent getComponent() {
+                return checkBox;
+            }
+
+            @Override
+            public void saveState() {
+                PropertiesComponent.getInstance(project).setValue(ENABLED_KEY, checkBox.isSelected());
+            }
+
+            @Override
+            public void restoreState() {
+                checkBox.setSelected(PropertiesComponent.getInstance(project).getBoolean(ENABLED_KEY));
+            }
+        };
+    }
+
+    @Override
+    public ReturnResult beforeCheckin() {
+        final Project project = panel.getProject();
+        if (!PropertiesComponent.getInstance(project).getBoolean(ENABLED_KEY) || DumbService.isDumb(project)) {
+            return ReturnResult.COMMIT;
+        }
+
+        PsiDocumentManager.getInstance(project).commitAllDocuments();
+        final Collection<Change> changes = panel.getSelectedChanges();
+        final Map<Document, List<SmartPsiElementPointer<PsiModifierListOwner>>> candidates;
+        try {
+            // 计算变更范围（可能需要读取修改前的版本）和分析都在可取消的后台进度中进行，EDT 上只做修改
+            candidates = ProgressManager.getInstance().runProcessWithProgressSynchronously(
+                    () -> collect(project, changes, ProgressManager.getInstance().getProgressIndicator()),
+                    "Adding final modifiers to changed lines", true, project);
+        } catch (final ProcessCanceledException e) {
+            // 取消只跳过添加 final，不阻止提交
+            return ReturnResult.COMMIT;
+        }
+
+        for (final Map.Entry<Document, List<SmartPsiElementPointer<PsiModifierListOwner>>> entry : candidates.entrySet()) {
+            final Document document = entry.getKey();
+            final PsiFile psiFile = PsiDocumentManager.getInstance(project).getPsiFile(document);
+            if (psiFile == null) {
+                continue;
+            }
+            WriteCommandAction.writeCommandAction(project, psiFile)
+                    .withName("Add final modifiers to changed lines")
+                    .run(() -> {
+                        final List<PsiModifierListOwner> elements = new ArrayList<>(entry.getValue().size());
+                        for (final SmartPsiElementPointer<PsiModifierListOwner> pointer : entry.getValue()) {
+                            final PsiModifierListOwner element = pointer.getElement();
+                            if (element != null) {
+                                elements.add(element);
+                            }
+                        }
+                        FinalModifierSupport.applyFinal(elements);
+                    });
+            FileDocumentManager.getInstance().saveDocument(document);
+        }
+        return ReturnResult.COMMIT;
+    }
+
+    /**
+     * 在后台收集每个变更文件中变更范围内的候选元素。非 private 字段可能在其他文件中被写入，
+     * 确认需要搜索整个使用范围，为了让提交前的检查足够快直接跳过
+     */
+    private static Map<Document, List<SmartPsiElementPointer<PsiModifierListOwner>>> collect(
+            final Project project, final Collection<Change> changes, final ProgressIndicator indicator) {
+        final Map<Document, List<SmartPsiElementPointer<PsiModifierListOwner>>> result = new LinkedHashMap<>();
+        for (final Change change : changes) {
+            indicator.checkCanceled();
+            final VirtualFile file = change.getVirtualFile();
+            if (file == null || !file.isValid() || file.getFileType() != JavaFileType.INSTANCE) {
+                continue;
+            }
+            final Document document = ReadAction.compute(() -> FileDocumentManager.getInstance().getDocument(file));
+            if (document == null) {
+                continue;
+            }
+            indicator.setText2(file.getPresentableUrl());
+            final List<TextRange> ranges = ChangedRanges.compute(project, change, document, indicator);
+            final List<SmartPsiElementPointer<PsiModifierListOwner>> pointers = ReadAction
+                    .nonBlocking(() -> collectInFile(project, file, ranges))
+                    .inSmartMode(project)
+                    .wrapProgress(indicator)
+                    .executeSynchronously();
+            if (!pointers.isEmpty()) {
+                result.put(document, pointers);
+            }
+        }
+        return result;
+    }
+
+    private static List<SmartPsiElementPointer<PsiModifierListOwner>> collectInFile(final Project project, final VirtualFile file,
+                                                                                    final List<TextRange> ranges) {
+        final PsiFile psiFile = file.isValid() ? PsiManager.getInstance(project).findFile(file) : null;
+        if (psiFile == null) {
+            return Collections.emptyList();
+        }
+        final SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+        final List<SmartPsiElementPointer<PsiModifierListOwner>> pointers = new ArrayList<>();
+        FinalModifierSupport.collectCandidates(psiFile, ranges, element -> {
+            if (!(element instanceof PsiField) || element.hasModifierProperty(PsiModifier.PRIVATE)) {
+                pointers.add(pointerManager.createSmartPsiElementPointer(element));
+            }
+        });
+        return pointers;
+    }
+}
@@ -0,0 +1,20 @@
+package lwm.plugin.vcs;
+
+import com.intellij.openapi.vcs.CheckinProjectPanel;
+import com.intellij.openapi.vcs.changes.CommitContext;
+import com.intellij.openapi.vcs.checkin.CheckinHandler;
+import com.intellij.openapi.vcs.checkin.CheckinHandlerFactory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 在提交对话框中提供“只给变更行添加 final”的选项
+ *
+ * @author longwm
+ */
+public class AddFinalCheckinHandlerFactory extends CheckinHandlerFactory {
+
+    @Override
+    public @NotNull CheckinHandler createHandler(@NotNull final CheckinProjectPanel panel, @NotNull final CommitContext commitContext) {
+        return new AddFinalCheckinHandler(panel);
+    }
+}
@@ -0,0 +1,84 @@
+package lwm.plugin.vcs;
+
+import com.intellij.diff.comparison.ComparisonManager;
+import com.intellij.diff.comparison.ComparisonPolicy;
+import com.intellij.diff.fragments.LineFragment;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vcs.VcsException;
+import com.intellij.openapi.vcs.changes.Change;
+import com.intellij.openapi.vcs.changes.ContentRevision;
+import com.intellij.openapi.vcs.ex.LineStatusTracker;
+import com.intellij.openapi.vcs.ex.Range;
+import com.intellij.openapi.vcs.impl.LineStatusTrackerManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 计算变更在当前文档中对应的文本范围
+ *
+ * @author longwm
+ */
+final class ChangedRanges {
+
+    private ChangedRanges() {
+    }
+
+    /**
+     * 优先使用编辑器已经算好的行状态，没有时再与修改前的版本比较
+     */
+    @NotNull
+    static List<TextRange> compute(@NotNull final Project project, @NotNull final Change change, @NotNull final Document document,
+                                   @NotNull final ProgressIndicator indicator) {
+        final ContentRevision beforeRevision = change.getBeforeRevision();
+        if (beforeRevision == null) {
+            // 新文件整个都是变更
+            return Collections.singletonList(new TextRange(0, document.getTextLength()));
+        }
+
+        final LineStatusTracker<?> tracker = LineStatusTrackerManager.getInstance(project).getLineStatusTracker(document);
+        if (tracker != null && tracker.isOperational()) {
+            final List<? extends Range> ranges = tracker.getRanges();
+            if (ranges != null) {
+                final List<TextRange> result = new ArrayList<>(ranges.size());
+                for (final Range range : ranges) {
+                    addLines(document, range.getLine1(), range.getLine2(), result);
+                }
+                return result;
+            }
+        }
+
+        final String beforeContent;
+        try {
+            beforeContent = beforeRevision.getContent();
+        } catch (final VcsException e) {
+            return Collections.emptyList();
+        }
+        if (beforeContent == null) {
+            return Collections.emptyList();
+        }
+        final List<LineFragment> fragments = ComparisonManager.getInstance()
+                .compareLines(beforeContent, document.getImmutableCharSequence(), ComparisonPolicy.DEFAULT, indicator);
+        final List<TextRange> result = new ArrayList<>(fragments.size());
+        for (final LineFragment fragment : fragments) {
+            addLines(document, fragment.getStartLine2(), fragment.getEndLine2(), result);
+        }
+        return result;
+    }
+
+    /**
+     * 把 [startLine, endLine) 行转换为文本范围，纯删除的变更没有对应的新行，忽略
+     */
+    private static void addLines(final Document document, final int startLine, final int endLine, final List<TextRange> result) {
+        if (startLine >= endLine || startLine >= document.getLineCount()) {
+            return;
+        }
+        final int lastLine = Math.min(endLine, document.getLineCount()) - 1;
+        result.add(new TextRange(document.getLineStartOffset(startLine), document.getLineEndOffset(lastLine)));
+    }
+}
@@ -0,0 +1,68 @@
+package lwm.plugin.batch;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandEvent;
+import com.intellij.openapi.command.CommandListener;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import lwm.plugin.core.JavaCandidateProvider;
+import lwm.plugin.fixtures.SyntheticJavaGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class AddFinalBatchRunnerTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final int FIELD_COUNT = 5000;
+
+    public void testManyCandidatesAreAppliedInFewWriteCommands() throws Exception {
+        final PsiFile file = myFixture.configureByText("Fields.java", SyntheticJavaGenerator.manyFields("Fields", FIELD_COUNT, 1));
+        final List<SmartPsiElementPointer<PsiElement>> candidates = new ArrayList<>(FIELD_COUNT);
+        final SmartPointerManager pointerManager = SmartPointerManager.getInstance(getProject());
+        for (final PsiField field : ((PsiJavaFile) file).getClasses()[0].getFields()) {
+            candidates.add(pointerManager.createSmartPsiElementPointer(field));
+        }
+
+        final int[] commands = {0};
+        getProject().getMessageBus().connect(getTestRootDisposable()).subscribe(CommandListener.TOPIC, new CommandListener() {
+            @Override
+            public void commandFinished(final CommandEvent event) {
+                if (AddFinalBatchRunner.COMMAND_NAME.equals(event.getCommandName())) {
+                    commands[0]++;
+                }
+            }
+        });
+
+        final AddFinalBatchRunner runner = AddFinalBatchRunner.getInstance(getProject());
+        final Future<Integer> applied = ApplicationManager.getApplication().executeOnPooledThread(() -> runner.applyInBatches(
+                new JavaCandidateProvider(), file.getVirtualFile(), candidates, new EmptyProgressIndicator()));
+        PlatformTestUtil.waitForFuture(applied, TimeUnit.MINUTES.toMillis(1));
+
+        assertEquals(FIELD_COUNT, applied.get().intValue());
+        // 每个写命令最多应用一批，批次之间不提交文档
+        final int minCommands = (FIELD_COUNT + AddFinalBatchRunner.MAX_BATCH_SIZE - 1) / AddFinalBatchRunner.MAX_BATCH_SIZE;
+        assertTrue("commands: " + commands[0], commands[0] >= minCommands);
+        assertTrue("commands: " + commands[0], commands[0] < FIELD_COUNT / 4);
+
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+        for (final PsiField field : ((PsiJavaFile) file).getClasses()[0].getFields()) {
+            assertTrue(field.getName(), field.hasModifierProperty(PsiModifier.FINAL));
+        }
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
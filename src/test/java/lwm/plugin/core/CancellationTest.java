@@ -0,0 +1,38 @@
+package lwm.plugin.core;
+
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+public class CancellationTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testCollectionStopsWhenIndicatorIsCanceled() {
+        final StringBuilder text = new StringBuilder("class Big {\n    void method() {\n");
+        for (int i = 0; i < 1000; i++) {
+            text.append("        int value").append(i).append(" = ").append(i).append(";\n");
+        }
+        text.append("    }\n}\n");
+        final PsiFile file = myFixture.configureByText("Big.java", text.toString());
+
+        final ProgressIndicator indicator = new EmptyProgressIndicator();
+        final int[] visited = {0};
+        try {
+            ProgressManager.getInstance().runProcess(() -> FinalModifierSupport.collectCandidates(file, element -> {
+                if (++visited[0] == 10) {
+                    indicator.cancel();
+                }
+            }), indicator);
+            fail("Analysis should stop after cancellation");
+        } catch (final ProcessCanceledException expected) {
+            assertEquals(10, visited[0]);
+        }
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
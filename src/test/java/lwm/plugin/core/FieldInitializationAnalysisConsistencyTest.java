@@ -0,0 +1,49 @@
+package lwm.plugin.core;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import lwm.plugin.fixtures.NaiveFieldInitialization;
+import lwm.plugin.fixtures.SyntheticJavaGenerator;
+import lwm.plugin.metrics.AddFinalMetrics;
+
+/**
+ * 单次遍历的字段初始化分析与逐字段扫描构造器的结果一致；两者的耗时对比见基准测试中的 fieldInit 条目
+ */
+public class FieldInitializationAnalysisConsistencyTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final int FIELD_COUNT = 400;
+    private static final int CONSTRUCTOR_COUNT = 4;
+
+    public void testSinglePassAgreesWithPerFieldScanOnLargeClass() {
+        final String text = SyntheticJavaGenerator.manyFields("Dto", FIELD_COUNT, CONSTRUCTOR_COUNT);
+        final PsiClass psiClass = ((PsiJavaFile) myFixture.configureByText("Dto.java", text)).getClasses()[0];
+
+        final FieldInitializationAnalysis analysis = FieldInitializationAnalysis.analyze(psiClass);
+        for (final PsiField field : psiClass.getFields()) {
+            assertEquals(field.getName(), NaiveFieldInitialization.isInitializedInAllConstructors(field, psiClass),
+                         analysis.isDefinitelyAssigned(field));
+            assertTrue(analysis.isDefinitelyAssigned(field));
+        }
+    }
+
+    public void testLongConstructorResolvesOnlyFieldAssignments() {
+        final String text = SyntheticJavaGenerator.longConstructor("Big", 5000);
+        final PsiClass psiClass = ((PsiJavaFile) myFixture.configureByText("Big.java", text)).getClasses()[0];
+        final PsiField[] fields = psiClass.getFields();
+
+        final long resolvesBefore = AddFinalMetrics.RESOLVES.sum();
+        final FieldInitializationAnalysis analysis = FieldInitializationAnalysis.analyze(psiClass);
+        for (final PsiField field : fields) {
+            assertTrue(analysis.isDefinitelyAssigned(field));
+        }
+        // 只有字段赋值需要解析，局部变量赋值按名字直接跳过
+        assertEquals(fields.length, AddFinalMetrics.RESOLVES.sum() - resolvesBefore);
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
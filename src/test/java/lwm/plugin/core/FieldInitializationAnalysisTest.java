@@ -0,0 +1,106 @@
+package lwm.plugin.core;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import lwm.plugin.metrics.AddFinalMetrics;
+
+public class FieldInitializationAnalysisTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testAssignmentInNestedBlockCounts() {
+        final PsiClass psiClass = configure("class Test {\n" +
+                "    private String name;\n" +
+                "    Test(String value) {\n" +
+                "        {\n" +
+                "            synchronized (this) {\n" +
+                "                this.name = value;\n" +
+                "            }\n" +
+                "        }\n" +
+                "    }\n" +
+                "}");
+        assertTrue(FieldInitializationAnalysis.analyze(psiClass).isDefinitelyAssigned(psiClass.findFieldByName("name", false)));
+    }
+
+    public void testCompoundAssignmentDoesNotCount() {
+        final PsiClass psiClass = configure("class Test {\n" +
+                "    private int count;\n" +
+                "    Test(int value) {\n" +
+                "        this.count += value;\n" +
+                "    }\n" +
+                "}");
+        assertFalse(FieldInitializationAnalysis.analyze(psiClass).isDefinitelyAssigned(psiClass.findFieldByName("count", false)));
+    }
+
+    public void testAssignmentInLambdaDoesNotCount() {
+        final PsiClass psiClass = configure("class Test {\n" +
+                "    private String name;\n" +
+                "    Test(String value) {\n" +
+                "        Runnable r = () -> this.name = value;\n" +
+                "        r.run();\n" +
+                "    }\n" +
+                "}");
+        assertFalse(FieldInitializationAnalysis.analyze(psiClass).isDefinitelyAssigned(psiClass.findFieldByName("name", false)));
+    }
+
+    public void testAssignmentAfterConditionalReturnDoesNotCount() {
+        final PsiClass psiClass = configure("class Test {\n" +
+                "    private int x;\n" +
+                "    Test(boolean flag) {\n" +
+                "        if (flag) return;\n" +
+                "        this.x = 1;\n" +
+                "    }\n" +
+                "}");
+        assertFalse(FieldInitializationAnalysis.analyze(psiClass).isDefinitelyAssigned(psiClass.findFieldByName("x", false)));
+    }
+
+    public void testAssignmentAfterGuardThrowCounts() {
+        final PsiClass psiClass = configure("class Test {\n" +
+                "    private String name;\n" +
+                "    Test(String value) {\n" +
+                "        if (value == null) throw new IllegalArgumentException();\n" +
+                "        this.name = value;\n" +
+                "    }\n" +
+                "}");
+        // 抛出异常结束构造器时不要求字段已赋值
+        assertTrue(FieldInitializationAnalysis.analyze(psiClass).isDefinitelyAssigned(psiClass.findFieldByName("name", false)));
+    }
+
+    public void testReturnInsideLambdaDoesNotStopCounting() {
+        final PsiClass psiClass = configure("class Test {\n" +
+                "    private String name;\n" +
+                "    Test(String value) {\n" +
+                "        if (value.isEmpty()) {\n" +
+                "            Runnable r = () -> { return; };\n" +
+                "        }\n" +
+                "        this.name = value;\n" +
+                "    }\n" +
+                "}");
+        assertTrue(FieldInitializationAnalysis.analyze(psiClass).isDefinitelyAssigned(psiClass.findFieldByName("name", false)));
+    }
+
+    public void testOnlyAssignmentsToFieldNamesAreResolved() {
+        final PsiClass psiClass = configure("class Test {\n" +
+                "    private String name;\n" +
+                "    Test(String value) {\n" +
+                "        String local;\n" +
+                "        local = value;\n" +
+                "        this.name = local;\n" +
+                "        other = value;\n" +
+                "    }\n" +
+                "    static String other;\n" +
+                "}");
+        final long resolvesBefore = AddFinalMetrics.RESOLVES.sum();
+        assertTrue(FieldInitializationAnalysis.analyze(psiClass).isDefinitelyAssigned(psiClass.findFieldByName("name", false)));
+        // local 不是字段名，other 是静态字段，都不需要解析
+        assertEquals(1, AddFinalMetrics.RESOLVES.sum() - resolvesBefore);
+    }
+
+    private PsiClass configure(final String text) {
+        return ((PsiJavaFile) myFixture.configureByText("Test.java", text)).getClasses()[0];
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
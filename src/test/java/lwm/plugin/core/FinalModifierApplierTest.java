@@ -0,0 +1,67 @@
+package lwm.plugin.core;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.util.PsiUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class FinalModifierApplierTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final String SOURCE = "import java.util.List;\n" +
+            "class Test {\n" +
+            "    private static String constant = \"c\";\n" +
+            "    transient int counter = 0;\n" +
+            "    @Deprecated\n" +
+            "    String annotated = \"a\";\n" +
+            "    @Deprecated protected String annotatedInline = \"b\";\n" +
+            "    int first = 1, second = 2;\n" +
+            "    public String name;\n" +
+            "    Test(String name) {\n" +
+            "        this.name = name;\n" +
+            "    }\n" +
+            "    void method(@Deprecated String annotatedParam, List<String> items) {\n" +
+            "        int a = 1, b = 2;\n" +
+            "        int inferred = items.size();\n" +
+            "        for (String item : items) {\n" +
+            "            try {\n" +
+            "                String local = item + a + b + inferred;\n" +
+            "            } catch (RuntimeException e) {\n" +
+            "                Runnable r = () -> {\n" +
+            "                    String inLambda = annotatedParam;\n" +
+            "                };\n" +
+            "            }\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+
+    public void testSameOutputAsPsiModification() {
+        final String expected = applyTo("Expected.java", candidates -> {
+            for (final PsiModifierListOwner candidate : candidates) {
+                PsiUtil.setModifierProperty(candidate, PsiModifier.FINAL, true);
+            }
+        });
+        final String actual = applyTo("Actual.java", FinalModifierApplier::apply);
+        assertEquals(expected.replace("Expected", "Actual"), actual);
+        assertFalse(actual, actual.equals(SOURCE));
+    }
+
+    private String applyTo(final String fileName, final Consumer<List<PsiModifierListOwner>> applier) {
+        final PsiFile file = myFixture.configureByText(fileName, SOURCE.replace("Test", fileName.replace(".java", "")));
+        final List<PsiModifierListOwner> candidates = new ArrayList<>();
+        FinalModifierSupport.collectCandidates(file, candidates::add);
+        assertFalse(candidates.isEmpty());
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> applier.accept(candidates));
+        return myFixture.getEditor().getDocument().getText();
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
@@ -0,0 +1,38 @@
+package lwm.plugin.core;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RangeCandidatesTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testOnlyVariablesDeclaredInRange() {
+        final PsiFile file = myFixture.configureByText("Test.java", "class Test {\n" +
+                "    String field = \"value\";\n" +
+                "    void method(String param) {\n" +
+                "        String before = param;\n" +
+                "        String changed = before;\n" +
+                "        String after = changed;\n" +
+                "    }\n" +
+                "}");
+        final Document document = myFixture.getEditor().getDocument();
+        final TextRange changedLine = new TextRange(document.getLineStartOffset(4), document.getLineEndOffset(4));
+
+        final List<String> names = new ArrayList<>();
+        FinalModifierSupport.collectCandidates(file, Collections.singletonList(changedLine),
+                                               (PsiModifierListOwner element) -> names.add(((PsiNamedElement) element).getName()));
+        assertEquals(Collections.singletonList("changed"), names);
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
@@ -0,0 +1,42 @@
+package lwm.plugin.fixtures;
+
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.util.PsiTreeUtil;
+
+/**
+ * 字段初始化检查原先的实现：每个字段都重新扫描所有构造器并解析每个赋值，
+ * 作为单次遍历分析的对照，用于一致性测试和基准测试
+ *
+ * @author longwm
+ */
+public final class NaiveFieldInitialization {
+
+    private NaiveFieldInitialization() {
+    }
+
+    public static boolean isInitializedInAllConstructors(final PsiField field, final PsiClass psiClass) {
+        for (final PsiMethod constructor : psiClass.getConstructors()) {
+            final PsiCodeBlock body = constructor.getBody();
+            boolean initialized = false;
+            if (body != null) {
+                for (final PsiAssignmentExpression assignment : PsiTreeUtil.collectElementsOfType(body, PsiAssignmentExpression.class)) {
+                    final PsiExpression lhs = assignment.getLExpression();
+                    if (lhs instanceof PsiReferenceExpression && field.equals(((PsiReferenceExpression) lhs).resolve())) {
+                        initialized = true;
+                        break;
+                    }
+                }
+            }
+            if (!initialized) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+package lwm.plugin.fixtures;
+
+/**
+ * 生成用于性能测试和基准测试的大型 Java 源文件
+ *
+ * @author longwm
+ */
+public final class SyntheticJavaGenerator {
+
+    private SyntheticJavaGenerator() {
+    }
+
+    /**
+     * 大量无初始化器的 private 字段，每个构造器都给所有字段赋值
+     */
+    public static String manyFields(final String className, final int fieldCount, final int constructorCount) {
+        return manyFields(className, fieldCount, constructorCount, "private ");
+    }
+
+    /**
+     * 大量无初始化器的字段，修饰符由 {@code modifiers} 指定（如 {@code ""} 表示包级可见），每个构造器都给所有字段赋值
+     */
+    public static String manyFields(final String className, final int fieldCount, final int constructorCount, final String modifiers) {
+        final StringBuilder text = new StringBuilder("class ").append(className).append(" {\n");
+        for (int i = 0; i < fieldCount; i++) {
+            text.append("    ").append(modifiers).append("String field").append(i).append(";\n");
+        }
+        for (int c = 0; c < constructorCount; c++) {
+            text.append("    ").append(className).append('(');
+            for (int p = 0; p < c; p++) {
+                text.append(p == 0 ? "" : ", ").append("int p").append(p);
+            }
+            text.append(") {\n");
+            for (int i = 0; i < fieldCount; i++) {
+                text.append("        this.field").append(i).append(" = \"").append(c).append("\";\n");
+            }
+            text.append("    }\n");
+        }
+        return text.append("}\n").toString();
+    }
+
+    /**
+     * 构造器中有大量语句，绝大多数是局部变量的赋值和复合赋值，只有少数给字段赋值
+     */
+    public static String longConstructor(final String className, final int statementCount) {
+        final int fieldCount = Math.max(1, statementCount / 100);
+        final StringBuilder text = new StringBuilder("class ").append(className).append(" {\n");
+        for (int i = 0; i < fieldCount; i++) {
+            text.append("    private int field").append(i).append(";\n");
+        }
+        text.append("    ").append(className).append("(int seed) {\n");
+        text.append("        int total = seed;\n");
+        for (int i = 0; i < statementCount; i++) {
+            if (i % 100 == 0) {
+                text.append("        this.field").append(i / 100).append(" = total;\n");
+            } else if (i % 2 == 0) {
+                text.append("        total = total + ").append(i).append(";\n");
+            } else {
+                text.append("        total += seed;\n");
+            }
+        }
+        text.append("    }\n");
+        return text.append("}\n").toString();
+    }
+
+    /**
+     * 一个包含大量局部变量的长方法，其中一部分会被重新赋值
+     */
+    public static String longMethod(final String className, final int statementCount) {
+        final StringBuilder text = new StringBuilder("class ").append(className).append(" {\n");
+        text.append("    int compute(int seed, String name) {\n");
+        text.append("        int total = seed;\n");
+        for (int i = 0; i < statementCount; i++) {
+            text.append("        int value").append(i).append(" = total + ").append(i).append(";\n");
+            if (i % 10 == 0) {
+                text.append("        value").append(i).append(" += name.length();\n");
+            }
+            text.append("        total += value").append(i).append(";\n");
+        }
+        text.append("        return total;\n");
+        text.append("    }\n");
+        return text.append("}\n").toString();
+    }
+
+    /**
+     * 深层嵌套的 lambda，每层都有参数和局部变量
+     */
+    public static String deepLambdas(final String className, final int depth) {
+        final StringBuilder text = new StringBuilder("import java.util.function.Function;\n\n");
+        text.append("class ").append(className).append(" {\n");
+        text.append("    Object nest(Object start) {\n");
+        text.append("        return ");
+        for (int i = 0; i < depth; i++) {
+            text.append("((Function<Object, Object>) (Object arg").append(i).append(") -> {\n");
+            text.append("            Object local").append(i).append(" = arg").append(i).append(";\n");
+            text.append("            return ");
+        }
+        text.append("start");
+        for (int i = depth - 1; i >= 0; i--) {
+            text.append(";\n        }).apply(").append(i == 0 ? "start" : "local" + (i - 1)).append(")");
+        }
+        text.append(";\n    }\n");
+        return text.append("}\n").toString();
+    }
+
+    /**
+     * 大量构造器：无参构造器给所有字段赋值，其余构造器各自接受一个不同类型的参数，
+     * 每十个中有一个直接给所有字段赋值，其他都通过 {@code this()} 委托
+     */
+    public static String manyConstructors(final String className, final int fieldCount, final int constructorCount) {
+        final StringBuilder text = new StringBuilder("class ").append(className).append(" {\n");
+        for (int i = 0; i < fieldCount; i++) {
+            text.append("    private String field").append(i).append(";\n");
+        }
+        text.append("    ").append(className).append("() {\n");
+        appendFieldAssignments(text, fieldCount, "init");
+        text.append("    }\n");
+        for (int c = 1; c < constructorCount; c++) {
+            text.append("    static final class Marker").append(c).append(" {\n    }\n");
+            text.append("    ").append(className).append("(Marker").append(c).append(" marker) {\n");
+            if (c % 10 == 0) {
+                appendFieldAssignments(text, fieldCount, "direct" + c);
+            } else {
+                text.append("        this();\n");
+            }
+            text.append("    }\n");
+        }
+        return text.append("}\n").toString();
+    }
+
+    private static void appendFieldAssignments(final StringBuilder text, final int fieldCount, final String value) {
+        for (int i = 0; i < fieldCount; i++) {
+            text.append("        this.field").append(i).append(" = \"").append(value).append("\";\n");
+        }
+    }
+
+    /**
+     * 深层嵌套的匿名类，每层的方法都有参数和局部变量，并读取外层的局部变量
+     */
+    public static String nestedAnonymousClasses(final String className, final int depth) {
+        final StringBuilder text = new StringBuilder("class ").append(className).append(" {\n");
+        text.append("    void run(int seed) {\n");
+        text.append("        int outer = seed;\n");
+        for (int i = 0; i < depth; i++) {
+            text.append("        new Object() {\n");
+            text.append("            void level").append(i).append("(int arg").append(i).append(") {\n");
+            text.append("                int local").append(i).append(" = arg").append(i).append(" + ")
+                    .append(i == 0 ? "outer" : "local" + (i - 1)).append(";\n");
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            text.append("            }\n");
+            text.append("        }.level").append(i).append("(").append(i).append(");\n");
+        }
+        text.append("    }\n");
+        return text.append("}\n").toString();
+    }
+}
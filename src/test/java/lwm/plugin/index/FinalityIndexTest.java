@@ -0,0 +1,63 @@
+package lwm.plugin.index;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import lwm.plugin.metrics.AddFinalMetrics;
+
+import java.util.Arrays;
+
+public class FinalityIndexTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testIndexRecordsCandidateOffsets() {
+        final String text = "class Test {\n" +
+                "    private String name;\n" +
+                "    private int counter;\n" +
+                "    Test(String name) {\n" +
+                "        this.name = name;\n" +
+                "    }\n" +
+                "    void increment() {\n" +
+                "        int step = 1;\n" +
+                "        counter += step;\n" +
+                "    }\n" +
+                "}";
+        final PsiFile file = myFixture.configureByText("Test.java", text);
+
+        final int[] offsets = FinalityIndex.getOffsets(getProject(), file.getVirtualFile());
+        final int[] expected = {text.indexOf("name;"), text.indexOf("name)"), text.indexOf("step = 1")};
+        assertEquals(Arrays.toString(expected), Arrays.toString(offsets));
+    }
+
+    public void testShadowedFieldIsNotInitialized() {
+        final String text = "class Test {\n" +
+                "    private String name;\n" +
+                "    Test(String name) {\n" +
+                "        name = name;\n" +
+                "    }\n" +
+                "}";
+        final PsiFile file = myFixture.configureByText("Test.java", text);
+
+        final int[] offsets = FinalityIndex.getOffsets(getProject(), file.getVirtualFile());
+        // 参数被赋值，字段也没有初始化，都不是候选
+        assertEquals(0, offsets.length);
+    }
+
+    public void testIndexingIsNotRecordedInMetrics() {
+        AddFinalMetrics.reset();
+        final PsiFile file = myFixture.configureByText("Test.java", "class Test {\n" +
+                "    void run(int count) {\n" +
+                "        int step = count;\n" +
+                "    }\n" +
+                "}");
+
+        final int[] offsets = FinalityIndex.getOffsets(getProject(), file.getVirtualFile());
+        assertEquals(2, offsets.length);
+        // 分析指标只反映编辑器中的分析，索引的建立不计入
+        assertEquals(0, AddFinalMetrics.ANALYSIS.getCount());
+        assertEquals(0, AddFinalMetrics.ELEMENTS_VISITED.sum());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
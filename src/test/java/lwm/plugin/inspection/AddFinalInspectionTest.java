@@ -0,0 +1,55 @@
+package lwm.plugin.inspection;
+
+import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+public class AddFinalInspectionTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final String MESSAGE = "Variable '%s' can be final(可以添加final修饰)";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        myFixture.enableInspections(new AddFinalInspection());
+    }
+
+    private static String warning(final String name) {
+        return "<weak_warning descr=\"" + String.format(MESSAGE, name) + "\">" + name + "</weak_warning>";
+    }
+
+    public void testHighlighting() {
+        myFixture.configureByText("Test.java", "class Test {\n" +
+                "    private String " + warning("field") + " = \"value\";\n" +
+                "    private int counter;\n" +
+                "    void method(String " + warning("param") + ", int reassigned) {\n" +
+                "        final String alreadyFinal = param;\n" +
+                "        String " + warning("local") + " = alreadyFinal;\n" +
+                "        reassigned = local.length();\n" +
+                "        counter++;\n" +
+                "    }\n" +
+                "}");
+        myFixture.checkHighlighting(true, false, true);
+    }
+
+    public void testFixAllInFile() {
+        myFixture.configureByText("Test.java", "class Test {\n" +
+                "    private String fi<caret>eld = \"value\";\n" +
+                "    void method(String param) {\n" +
+                "        String local = param;\n" +
+                "    }\n" +
+                "}");
+        final IntentionAction fix = myFixture.findSingleIntention("Add final modifier to all variables in file");
+        myFixture.launchAction(fix);
+        myFixture.checkResult("class Test {\n" +
+                "    private final String field = \"value\";\n" +
+                "    void method(final String param) {\n" +
+                "        final String local = param;\n" +
+                "    }\n" +
+                "}");
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
@@ -0,0 +1,119 @@
+package lwm.plugin.intention;
+
+import com.intellij.openapi.application.impl.NonBlockingReadActionImpl;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import lwm.plugin.fixtures.SyntheticJavaGenerator;
+
+/**
+ * 意图在大型生成输入上的耗时上限，分析退化为按字段或按语句重复扫描时会超时失败
+ */
+public class AddFinalIntentionPerformanceTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private final AddFinalIntention intention = new AddFinalIntention();
+
+    public void testInvokeOnClassWithManyFields() {
+        final String text = SyntheticJavaGenerator.manyFields("Dto", 10_000, 1);
+        doTestInvoke(text.replaceFirst("class Dto", "class <caret>Dto"), 10_000, 5000);
+    }
+
+    public void testInvokeOnClassWithManyConstructors() {
+        final String text = SyntheticJavaGenerator.manyConstructors("Dto", 100, 1000);
+        // 字段和每个构造器的参数
+        doTestInvoke(text.replaceFirst("class Dto", "class <caret>Dto"), 100 + 999, 5000);
+    }
+
+    public void testInvokeOnClassWithNestedAnonymousClasses() {
+        final String text = SyntheticJavaGenerator.nestedAnonymousClasses("Nested", 200);
+        // 每层的参数和局部变量，以及最外层的参数和局部变量
+        doTestInvoke(text.replaceFirst("class Nested", "class <caret>Nested"), 2 * 200 + 2, 3000);
+    }
+
+    public void testInvokeOnClassWithDeepLambdas() {
+        final String text = SyntheticJavaGenerator.deepLambdas("Nested", 200);
+        // 每层声明了类型的 lambda 参数和局部变量，以及方法参数
+        doTestInvoke(text.replaceFirst("class Nested", "class <caret>Nested"), 2 * 200 + 1, 3000);
+    }
+
+    public void testInvokeOnHugeMethod() {
+        final String text = SyntheticJavaGenerator.longMethod("Big", 5000);
+        // total 被累加，每十个 value 中有一个被复合赋值，其余局部变量和两个参数加上 final
+        doTestInvoke(text.replaceFirst("int compute", "int <caret>compute"), 2 + 5000 - 500, 5000);
+    }
+
+    public void testIsAvailableOnClassWithManyFields() {
+        final String text = SyntheticJavaGenerator.manyFields("Dto", 10_000, 1);
+        doTestIsAvailable(text.replaceFirst("class Dto", "class <caret>Dto"), 3000);
+    }
+
+    public void testIsAvailableOnClassWithPackagePrivateFields() {
+        addReaders("Dto", 1000);
+        final String text = SyntheticJavaGenerator.manyFields("Dto", 1000, 1, "");
+        // 非 private 字段的可用性只看顶层类内的写入，不搜索其他文件
+        doTestIsAvailable(text.replaceFirst("class Dto", "class <caret>Dto"), 1000);
+    }
+
+    public void testIsAvailableOnClassWithPublicFields() {
+        addReaders("Dto", 1000);
+        final String text = SyntheticJavaGenerator.manyFields("Dto", 1000, 1, "public ");
+        doTestIsAvailable(text.replaceFirst("class Dto", "class <caret>Dto"), 1000);
+    }
+
+    public void testIsAvailableOnHugeMethod() {
+        final String text = SyntheticJavaGenerator.longMethod("Big", 5000);
+        doTestIsAvailable(text.replaceFirst("int compute", "int <caret>compute"), 3000);
+    }
+
+    /**
+     * 每次尝试前重新加载原始文本，测量从调用意图到修改应用完成的时间
+     */
+    private void doTestInvoke(final String text, final int expectedFinals, final int expectedMs) {
+        PlatformTestUtil.startPerformanceTest(getTestName(false), expectedMs, () -> {
+            intention.invoke(getProject(), myFixture.getEditor(), myFixture.getFile());
+            NonBlockingReadActionImpl.waitForAsyncTaskCompletion();
+        }).setup(() -> myFixture.configureByText("Test.java", text))
+                .attempts(3)
+                .assertTiming();
+
+        assertEquals(expectedFinals, countFinals(myFixture.getEditor().getDocument().getText()) - countFinals(text));
+    }
+
+    /**
+     * 每次尝试前重新加载原始文本，测量没有缓存的候选摘要时计算可用性的时间
+     */
+    private void doTestIsAvailable(final String text, final int expectedMs) {
+        PlatformTestUtil.startPerformanceTest(getTestName(false), expectedMs,
+                () -> assertTrue(intention.isAvailable(getProject(), myFixture.getEditor(), myFixture.getFile())))
+                .setup(() -> myFixture.configureByText("Test.java", text))
+                .attempts(3)
+                .assertTiming();
+    }
+
+    /**
+     * 添加若干读取每个字段的类，跨文件搜索时会遍历它们
+     */
+    private void addReaders(final String className, final int fieldCount) {
+        for (int r = 0; r < 20; r++) {
+            final StringBuilder reader = new StringBuilder("class Reader").append(r).append(" {\n");
+            reader.append("    int read(").append(className).append(" value) {\n        int total = 0;\n");
+            for (int i = 0; i < fieldCount; i++) {
+                reader.append("        total += value.field").append(i).append(".length();\n");
+            }
+            reader.append("        return total;\n    }\n}\n");
+            myFixture.addClass(reader.toString());
+        }
+    }
+
+    private static int countFinals(final String text) {
+        int count = 0;
+        for (int index = text.indexOf("final "); index >= 0; index = text.indexOf("final ", index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
@@ -0,0 +1,121 @@
+package lwm.plugin.intention;
+
+import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.openapi.application.impl.NonBlockingReadActionImpl;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiJavaFile;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import lwm.plugin.core.FieldInitializationAnalysis;
+import lwm.plugin.core.FinalModifierSupport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ModernJavaFieldsTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final String INTENTION_TEXT = "Add final modifier(添加final修饰)";
+
+    public void testRecordComponentIsNotAvailable() {
+        myFixture.configureByText("Test.java", "record Point(int <caret>x, int y) {\n" +
+                "    Point {\n" +
+                "        if (x < 0) throw new IllegalArgumentException();\n" +
+                "    }\n" +
+                "}");
+        assertEmpty(myFixture.filterAvailableIntentions(INTENTION_TEXT));
+    }
+
+    public void testCompactConstructorLocalsOnly() {
+        final PsiJavaFile file = (PsiJavaFile) myFixture.configureByText("Test.java", "record Range(int from, int to) {\n" +
+                "    static int created;\n" +
+                "    Range {\n" +
+                "        int length = to - from;\n" +
+                "        if (length < 0) throw new IllegalArgumentException();\n" +
+                "    }\n" +
+                "}");
+        assertEquals(Collections.singletonList("length"), candidateNames(file.getClasses()[0]));
+    }
+
+    public void testEnumConstantsAndInterfaceFieldsAreSkipped() {
+        final PsiJavaFile file = (PsiJavaFile) myFixture.configureByText("Test.java", "enum Color {\n" +
+                "    RED(\"r\"), GREEN(\"g\");\n" +
+                "    private String code;\n" +
+                "    Color(String code) {\n" +
+                "        this.code = code;\n" +
+                "    }\n" +
+                "}\n" +
+                "interface Limits {\n" +
+                "    int MAX = 10;\n" +
+                "}");
+        assertEquals(Arrays.asList("code", "code"), candidateNames(file.getClasses()[0]));
+        assertEmpty(candidateNames(file.getClasses()[1]));
+    }
+
+    public void testChainedConstructorsWithInitializer() {
+        final String before = "class <caret>Test {\n" +
+                "    private String name;\n" +
+                "    private int size;\n" +
+                "    private long id;\n" +
+                "    {\n" +
+                "        id = 1L;\n" +
+                "    }\n" +
+                "    Test() {\n" +
+                "        this(\"default\");\n" +
+                "    }\n" +
+                "    Test(String name) {\n" +
+                "        this(name, name.length());\n" +
+                "    }\n" +
+                "    Test(String name, int size) {\n" +
+                "        this.name = name;\n" +
+                "        this.size = size;\n" +
+                "    }\n" +
+                "}";
+        myFixture.configureByText("Test.java", before);
+        final PsiClass psiClass = ((PsiJavaFile) myFixture.getFile()).getClasses()[0];
+        final FieldInitializationAnalysis analysis = FieldInitializationAnalysis.of(psiClass);
+        assertTrue(analysis.isDelegating(psiClass.getConstructors()[0]));
+        assertTrue(analysis.isDelegating(psiClass.getConstructors()[1]));
+        assertFalse(analysis.isDelegating(psiClass.getConstructors()[2]));
+
+        final IntentionAction intention = myFixture.findSingleIntention(INTENTION_TEXT);
+        myFixture.launchAction(intention);
+        NonBlockingReadActionImpl.waitForAsyncTaskCompletion();
+        myFixture.checkResult("class Test {\n" +
+                "    private final String name;\n" +
+                "    private final int size;\n" +
+                "    private final long id;\n" +
+                "    {\n" +
+                "        id = 1L;\n" +
+                "    }\n" +
+                "    Test() {\n" +
+                "        this(\"default\");\n" +
+                "    }\n" +
+                "    Test(final String name) {\n" +
+                "        this(name, name.length());\n" +
+                "    }\n" +
+                "    Test(final String name, final int size) {\n" +
+                "        this.name = name;\n" +
+                "        this.size = size;\n" +
+                "    }\n" +
+                "}");
+    }
+
+    private static List<String> candidateNames(final PsiClass psiClass) {
+        final List<String> names = new ArrayList<>();
+        FinalModifierSupport.collectCandidates(psiClass, element -> names.add(((PsiNamedElement) element).getName()));
+        return names;
+    }
+
+    @Override
+    protected LightProjectDescriptor getProjectDescriptor() {
+        return JAVA_17;
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
@@ -0,0 +1,81 @@
+package lwm.plugin.kotlin;
+
+import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import lwm.plugin.metrics.AddFinalMetrics;
+
+public class ConvertVarToValIntentionTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final String INTENTION_TEXT = "Convert var to val(改为val)";
+
+    public void testConvertsOnlyNeverReassignedVarsInFunction() {
+        myFixture.configureByText("Test.kt", "class Counter {\n" +
+                "    private var total = 0\n" +
+                "    private var label = \"counter\"\n" +
+                "    fun a<caret>dd(amount: Int): Int {\n" +
+                "        var step = amount\n" +
+                "        var result = total\n" +
+                "        result += step\n" +
+                "        total = result\n" +
+                "        return result\n" +
+                "    }\n" +
+                "}");
+        final IntentionAction intention = myFixture.findSingleIntention(INTENTION_TEXT);
+        myFixture.launchAction(intention);
+        myFixture.checkResult("class Counter {\n" +
+                "    private var total = 0\n" +
+                "    private var label = \"counter\"\n" +
+                "    fun add(amount: Int): Int {\n" +
+                "        val step = amount\n" +
+                "        var result = total\n" +
+                "        result += step\n" +
+                "        total = result\n" +
+                "        return result\n" +
+                "    }\n" +
+                "}");
+    }
+
+    public void testClassScopeIncludesPrivateProperties() {
+        myFixture.configureByText("Test.kt", "class Coun<caret>ter {\n" +
+                "    private var total = 0\n" +
+                "    private var label = \"counter\"\n" +
+                "    var visible = 1\n" +
+                "    fun add(amount: Int) {\n" +
+                "        total += amount\n" +
+                "    }\n" +
+                "}");
+        final IntentionAction intention = myFixture.findSingleIntention(INTENTION_TEXT);
+        myFixture.launchAction(intention);
+        myFixture.checkResult("class Counter {\n" +
+                "    private var total = 0\n" +
+                "    private val label = \"counter\"\n" +
+                "    var visible = 1\n" +
+                "    fun add(amount: Int) {\n" +
+                "        total += amount\n" +
+                "    }\n" +
+                "}");
+    }
+
+    public void testRepeatedAvailabilityCheckDoesNotResolveAgain() {
+        myFixture.configureByText("Test.kt", "class Counter {\n" +
+                "    private var to<caret>tal = 0\n" +
+                "    fun add(amount: Int) {\n" +
+                "        total += amount\n" +
+                "    }\n" +
+                "}");
+        final ConvertVarToValIntention intention = new ConvertVarToValIntention();
+        assertFalse(intention.isAvailable(getProject(), myFixture.getEditor(), myFixture.getFile()));
+
+        // 写入检查缓存在声明上，文件未修改时再次检查不需要解析
+        final long resolvesBefore = AddFinalMetrics.RESOLVES.sum();
+        for (int i = 0; i < 10; i++) {
+            assertFalse(intention.isAvailable(getProject(), myFixture.getEditor(), myFixture.getFile()));
+        }
+        assertEquals(resolvesBefore, AddFinalMetrics.RESOLVES.sum());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
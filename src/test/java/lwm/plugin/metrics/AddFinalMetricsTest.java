@@ -0,0 +1,50 @@
+package lwm.plugin.metrics;
+
+import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.openapi.application.impl.NonBlockingReadActionImpl;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+
+public class AddFinalMetricsTest extends LightJavaCodeInsightFixtureTestCase {
+
+    public void testIntentionRecordsPhasesAndCounters() {
+        AddFinalMetrics.reset();
+        myFixture.configureByText("Test.java", "class Test {\n" +
+                "    void method(String param) {\n" +
+                "        <caret>\n" +
+                "        String local = param;\n" +
+                "        int counter = 0;\n" +
+                "        counter++;\n" +
+                "    }\n" +
+                "}");
+        final IntentionAction intention = myFixture.findSingleIntention("Add final modifier(添加final修饰)");
+        myFixture.launchAction(intention);
+        NonBlockingReadActionImpl.waitForAsyncTaskCompletion();
+
+        assertTrue(AddFinalMetrics.IS_AVAILABLE.getCount() > 0);
+        assertTrue(AddFinalMetrics.ANALYSIS.getCount() > 0);
+        assertTrue(AddFinalMetrics.WRITE_ACTION.getCount() > 0);
+        assertTrue(AddFinalMetrics.ELEMENTS_VISITED.sum() >= 3);
+        assertTrue(AddFinalMetrics.RESOLVES.sum() > 0);
+        assertEquals(2, AddFinalMetrics.MODIFIERS_ADDED.sum());
+        assertTrue(AddFinalMetrics.toJson().contains("\"modifiersAdded\": 2"));
+    }
+
+    public void testPercentilesUseBucketUpperBounds() {
+        final Histogram histogram = new Histogram("test");
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000);
+        }
+        histogram.record(1_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1_023, histogram.getPercentileNanos(50));
+        assertEquals(1_023, histogram.getPercentileNanos(99));
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+        assertEquals(1_000_000, histogram.getMaxNanos());
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}
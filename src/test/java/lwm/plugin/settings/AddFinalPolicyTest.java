@@ -0,0 +1,80 @@
+package lwm.plugin.settings;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiModifierListOwner;
+import com.intellij.psi.PsiNamedElement;
+import com.intellij.testFramework.fixtures.LightJavaCodeInsightFixtureTestCase;
+import lwm.plugin.core.FinalModifierSupport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AddFinalPolicyTest extends LightJavaCodeInsightFixtureTestCase {
+
+    private static final String SOURCE = "import java.util.List;\n" +
+            "interface Api {\n" +
+            "    default void run(String command) {\n" +
+            "        String trimmed = command.trim();\n" +
+            "    }\n" +
+            "}\n" +
+            "class Test {\n" +
+            "    private String name = \"name\";\n" +
+            "    void method(List<String> items) {\n" +
+            "        for (String item : items) {\n" +
+            "            System.out.println(item);\n" +
+            "        }\n" +
+            "        try {\n" +
+            "            items.clear();\n" +
+            "        } catch (RuntimeException e) {\n" +
+            "            throw e;\n" +
+            "        }\n" +
+            "    }\n" +
+            "}";
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            AddFinalSettings.getInstance().loadState(new AddFinalSettings.State());
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testNoRulesAllowsEverything() {
+        assertSame(AddFinalPolicy.ALLOW_ALL, AddFinalSettings.getInstance().getPolicy());
+        assertEquals(Arrays.asList("command", "trimmed", "name", "items", "item", "e"), candidates());
+    }
+
+    public void testSkipCatchAndForEach() {
+        final AddFinalSettings.State state = new AddFinalSettings.State();
+        state.skipCatchParameters = true;
+        state.skipForEachVariables = true;
+        AddFinalSettings.getInstance().loadState(state);
+        assertEquals(Arrays.asList("command", "trimmed", "name", "items"), candidates());
+    }
+
+    public void testOnlyFieldsAndSkipDefaultMethods() {
+        final AddFinalSettings.State state = new AddFinalSettings.State();
+        state.skipInterfaceDefaultMethods = true;
+        AddFinalSettings.getInstance().loadState(state);
+        assertEquals(Arrays.asList("name", "items", "item", "e"), candidates());
+
+        state.onlyFields = true;
+        AddFinalSettings.getInstance().loadState(state);
+        assertEquals(Collections.singletonList("name"), candidates());
+    }
+
+    private List<String> candidates() {
+        final PsiFile file = myFixture.configureByText("Test.java", SOURCE);
+        final List<String> names = new ArrayList<>();
+        FinalModifierSupport.collectCandidates(file, (PsiModifierListOwner element) -> names.add(((PsiNamedElement) element).getName()));
+        return names;
+    }
+
+    @Override
+    protected String getTestDataPath() {
+        return "";
+    }
+}